@@ -0,0 +1,328 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * @author Zuzana Melsova
+ * Common part of the maps with primitive int keys, which are stored in an open-addressing table with linear probing.
+ * Removed keys leave a mark in the table until it is rebuilt, so entries may be removed while iterating.
+ *
+ * Besides the Map interface with boxed keys, the slots of the table can be iterated directly:
+ * for (int slot = map.nextSlot(-1); slot >= 0; slot = map.nextSlot(slot)) { map.keyAt(slot) ... }
+ * Subclasses store the values in arrays indexed by the slot.
+ */
+public abstract class AbstractIntKeyMap<V> extends AbstractMap<Integer, V> {
+
+    private static final byte FREE = 0;
+    private static final byte FULL = 1;
+    private static final byte REMOVED = 2;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private byte[] states;
+    private int size;
+    private int used; // Number of slots which are not free, including the removed ones.
+
+    protected AbstractIntKeyMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new int[capacity];
+        states = new byte[capacity];
+    }
+
+    /**
+     * @param size - number of entries
+     * @return power of two large enough to keep the table at most half full
+     */
+    protected static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @param key
+     * @return slot containing given key, -1 if the key is not in the map
+     */
+    protected final int slotOf(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (states[slot] == FREE) {
+                return -1;
+            }
+            if (states[slot] == FULL && keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of given key, or adds the key to the map.
+     * @param key
+     * @return slot containing the key if it has already been in the map, otherwise -(slot + 1) of the new key
+     */
+    protected final int insert(int key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (4 * (used + 1) > 3 * keys.length) {
+            rehash(capacityFor(size + 1));
+        }
+        int mask = keys.length - 1;
+        slot = hash(key) & mask;
+        while (states[slot] == FULL) {
+            slot = (slot + 1) & mask;
+        }
+        if (states[slot] == FREE) {
+            used++;
+        }
+        states[slot] = FULL;
+        keys[slot] = key;
+        size++;
+        return -(slot + 1);
+    }
+
+    /**
+     * Removes the entry in given slot.
+     * @param slot
+     */
+    protected final void removeSlot(int slot) {
+        states[slot] = REMOVED;
+        size--;
+        clearValue(slot);
+        if (size == 0) {
+            Arrays.fill(states, FREE);
+            used = 0;
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        byte[] oldStates = states;
+        keys = new int[capacity];
+        states = new byte[capacity];
+        used = size;
+        int mask = capacity - 1;
+        int[] moves = new int[oldKeys.length];
+        for (int old = 0; old < oldKeys.length; old++) {
+            moves[old] = -1;
+            if (oldStates[old] == FULL) {
+                int slot = hash(oldKeys[old]) & mask;
+                while (states[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                states[slot] = FULL;
+                keys[slot] = oldKeys[old];
+                moves[old] = slot;
+            }
+        }
+        moveValues(capacity, moves);
+    }
+
+    /**
+     * Moves the values to new arrays after the table has been rebuilt.
+     * @param capacity - length of the new arrays
+     * @param moves - new slot for each old slot, -1 for slots without an entry
+     */
+    protected abstract void moveValues(int capacity, int[] moves);
+
+    /**
+     * Releases the value in given slot.
+     * @param slot
+     */
+    protected abstract void clearValue(int slot);
+
+    /**
+     * @param slot
+     * @return value in given slot
+     */
+    public abstract V valueAt(int slot);
+
+    /**
+     * Replaces the value in given slot.
+     * @param slot
+     * @param value
+     * @return previous value
+     */
+    protected abstract V setValueAt(int slot, V value);
+
+    /**
+     * @param slot - previous slot, -1 to start from the beginning
+     * @return next slot containing an entry, -1 if there is none
+     */
+    public final int nextSlot(int slot) {
+        for (slot++; slot < states.length; slot++) {
+            if (states[slot] == FULL) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param slot
+     * @return key in given slot
+     */
+    public final int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @return all the keys in the order of the slots
+     */
+    public final int[] keys() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int slot = nextSlot(-1); slot >= 0; slot = nextSlot(slot)) {
+            result[i++] = keys[slot];
+        }
+        return result;
+    }
+
+    public boolean containsKey(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && slotOf((Integer) key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int slot = key instanceof Integer ? slotOf((Integer) key) : -1;
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int slot = key instanceof Integer ? slotOf((Integer) key) : -1;
+        if (slot < 0) {
+            return null;
+        }
+        V value = valueAt(slot);
+        removeSlot(slot);
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int slot = nextSlot(-1); slot >= 0; slot = nextSlot(slot)) {
+            clearValue(slot);
+        }
+        Arrays.fill(states, FREE);
+        size = 0;
+        used = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, V>>() {
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterator over the slots containing an entry.
+     */
+    private class SlotIterator implements Iterator<Map.Entry<Integer, V>> {
+        private int next = nextSlot(-1);
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public Map.Entry<Integer, V> next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextSlot(next);
+            return new SlotEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            removeSlot(current);
+            current = -1;
+        }
+    }
+
+    /**
+     * Entry backed by a slot of the table.
+     */
+    private class SlotEntry implements Map.Entry<Integer, V> {
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Integer getKey() {
+            return keys[slot];
+        }
+
+        @Override
+        public V getValue() {
+            return valueAt(slot);
+        }
+
+        @Override
+        public V setValue(V value) {
+            return setValueAt(slot, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            V value = getValue();
+            return getKey().equals(entry.getKey()) && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            V value = getValue();
+            return keys[slot] ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return keys[slot] + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,435 @@
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * @author Zuzana Melsova
+ * Common part of the transports: sending of messages through pooled connections and delivering of received messages.
+ * Messages are sent by the calling thread, or concurrently to different participants if enabled.
+ * Subclasses implement listening to incoming messages.
+ */
+public abstract class AbstractMessageTransport implements MessageTransport {
+
+    static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(AbstractMessageTransport.class);
+
+    protected IntIntHashMap ports; // Ports associated with participants IDs.
+    private Map<Integer, PeerConnection> connections; // Open outgoing connections associated with participants IDs.
+    // Ports of participants who have not accepted the framed format, associated with their IDs. New connections
+    // to them do not offer the framed format again, so that reconnecting does not wait for the negotiation timeout.
+    private ConcurrentMap<Integer, Integer> unframedPeers;
+    // IDs of participants who have sent a message in the original format, even the first connection to them
+    // does not offer the framed format.
+    private Set<Integer> unframedSenders;
+    protected int myPort;
+    private MessageListener messageListener;
+    protected volatile boolean running = true;
+
+    // Threads sending messages if concurrent sending is enabled, null if messages are sent by the calling thread.
+    // Replaced together with the queues of messages while holding sendingLock.
+    private ExecutorService senders;
+    private ConcurrentMap<Integer, SerialExecutor> lanes; // Queues of messages associated with receivers IDs.
+    private final Object sendingLock = new Object();
+    private ScheduledThreadPoolExecutor timer;
+    private volatile long sendTimeout;
+
+    protected AbstractMessageTransport(int myPort) {
+        this.myPort = myPort;
+        ports = new IntIntHashMap();
+        connections = new ConcurrentHashMap<Integer, PeerConnection>();
+        unframedPeers = new ConcurrentHashMap<Integer, Integer>();
+        unframedSenders = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        lanes = new ConcurrentHashMap<Integer, SerialExecutor>();
+    }
+
+    /**
+     * Enables sending of messages to different participants concurrently.
+     * Messages to one participant are still sent in the order in which they have been given to the transport.
+     * Messages queued before the call are sent first and the threads used for them are shut down.
+     * @param threads - maximal number of messages being sent at the same time, 0 to send messages sequentially
+     * by the calling thread
+     * @param timeout - time in milliseconds after which sending of a message to one participant is abandoned,
+     * counted from the moment the sending starts
+     */
+    public void setConcurrentSending(int threads, long timeout) {
+        synchronized (sendingLock) {
+            drainLanes();
+            if (senders != null) {
+                senders.shutdown();
+                senders = null;
+            }
+            lanes = new ConcurrentHashMap<Integer, SerialExecutor>();
+            sendTimeout = timeout;
+            if (threads <= 0) {
+                return;
+            }
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), daemonThreads("sender-" + myPort));
+            executor.allowCoreThreadTimeOut(true);
+            senders = executor;
+            if (timer == null) {
+                timer = new ScheduledThreadPoolExecutor(1, daemonThreads("send-timeout-" + myPort));
+                // Timeouts of finished sends are cancelled, do not keep them in the queue until they expire.
+                timer.setRemoveOnCancelPolicy(true);
+            }
+        }
+    }
+
+    /**
+     * Waits until all the messages in the queues have been sent, each of them is limited by the timeout.
+     */
+    private void drainLanes() {
+        List<FutureTask<Void>> drained = new ArrayList<FutureTask<Void>>(lanes.size());
+        for (SerialExecutor lane : lanes.values()) {
+            FutureTask<Void> end = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, null);
+            lane.execute(end);
+            drained.add(end);
+        }
+        try {
+            for (FutureTask<Void> end : drained) {
+                end.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The empty task cannot fail.
+        }
+    }
+
+    /**
+     * Sends given message to all the other participants.
+     * The message is serialized only once and the same bytes are written to all the connections.
+     * @param msg
+     * @return IDs of participants to whom the message has been sent, available when all the sending is finished
+     */
+    public Future<Set<Integer>> sendMsgToEveryone(Message.Msg msg) {
+        EncodedMessage encoded = new EncodedMessage(msg);
+        Map<Integer, FutureTask<Boolean>> sends = new HashMap<Integer, FutureTask<Boolean>>(ports.size() * 4 / 3 + 1);
+        for (int slot = ports.nextSlot(-1); slot >= 0; slot = ports.nextSlot(slot)) {
+            sends.put(ports.keyAt(slot), submit(encoded, ports.keyAt(slot), ports.intValueAt(slot)));
+        }
+        return new BroadcastFuture(sends);
+    }
+
+    /**
+     * Sends the message to the participant with given id.
+     * The connection to the participant is opened on first use and then reused for the following messages.
+     * @param msg
+     * @param id - receiver's id
+     */
+    public void sendMsgTo(Message.Msg msg, Integer id) {
+        int port = ports.getInt(id, -1);
+        if (port >= 0) {
+            submit(new EncodedMessage(msg), id, port);
+        }
+    }
+
+    /**
+     * Sends the message to a participant to whom messages are not sent to everyone, e.g. a new participant
+     * who has not joined yet.
+     * @param msg
+     * @param id - receiver's id
+     * @param port - receiver's port
+     */
+    public void sendMsgTo(Message.Msg msg, Integer id, int port) {
+        submit(new EncodedMessage(msg), id, port);
+    }
+
+    /**
+     * Sends the message by the calling thread, or passes it to the participant's queue if concurrent sending is enabled.
+     * @param msg
+     * @param id - receiver's id
+     * @param port - receiver's port
+     */
+    private FutureTask<Boolean> submit(final EncodedMessage msg, final Integer id, final int port) {
+        synchronized (sendingLock) {
+            Executor lane = lane(id);
+            if (lane != null) {
+                FutureTask<Boolean> send = new FutureTask<Boolean>(new TimedSend(msg, id, port));
+                lane.execute(send);
+                return send;
+            }
+        }
+        FutureTask<Boolean> send = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return send(msg, id, port, null);
+            }
+        });
+        send.run();
+        return send;
+    }
+
+    /**
+     * Sending of a message taken from the participant's queue. The timeout starts when the sending starts,
+     * so the time spent waiting behind earlier messages to the same participant is not counted.
+     * When the timeout expires, the connection is closed, so that the blocked sending fails,
+     * and the sending thread itself removes the connection.
+     */
+    private class TimedSend implements Callable<Boolean> {
+        private final EncodedMessage msg;
+        private final Integer id;
+        private final int port;
+        private PeerConnection connection; // Connection being written to.
+        private boolean timedOut;
+
+        private TimedSend(EncodedMessage msg, Integer id, int port) {
+            this.msg = msg;
+            this.id = id;
+            this.port = port;
+        }
+
+        @Override
+        public Boolean call() {
+            ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    expire();
+                }
+            }, sendTimeout, TimeUnit.MILLISECONDS);
+            try {
+                return send(msg, id, port, this);
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        /**
+         * @param connection - connection to be written to, closed if the timeout expires
+         * @return false if the timeout has already expired
+         */
+        private synchronized boolean use(PeerConnection connection) {
+            this.connection = connection;
+            return !timedOut;
+        }
+
+        private synchronized boolean isTimedOut() {
+            return timedOut;
+        }
+
+        private synchronized void expire() {
+            timedOut = true;
+            LOGGER.error("Sending message to " + port + " timed out: " + msg.getType());
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * @param msg
+     * @param id - receiver's id
+     * @param port - receiver's port
+     * @param timedSend - sending limited by a timeout, null if there is no timeout
+     * @return true if the message has been sent
+     */
+    private boolean send(EncodedMessage msg, Integer id, int port, TimedSend timedSend) {
+        PeerConnection connection = null;
+        try {
+            try {
+                connection = connect(id, port, timedSend);
+                connection.send(msg);
+            } catch (IOException e) {
+                if (timedSend != null && timedSend.isTimedOut()) {
+                    throw e;
+                }
+                // The pooled connection may have been closed by the receiver, try once more with a new one.
+                disconnect(id, connection);
+                connection = connect(id, port, timedSend);
+                connection.send(msg);
+            }
+            LOGGER.info("Message has been sent to : " + port + ": " + msg.getType());
+            return true;
+        } catch (IOException e) {
+            disconnect(id, connection);
+            if (timedSend == null || !timedSend.isTimedOut()) {
+                LOGGER.error("Error occurred when sending message to " + port, e);
+            }
+            return false;
+        }
+    }
+
+    private PeerConnection connect(Integer id, int port, TimedSend timedSend) throws IOException {
+        PeerConnection connection = getConnection(id, port);
+        if (timedSend != null && !timedSend.use(connection)) {
+            throw new SocketTimeoutException("Sending to " + port + " timed out.");
+        }
+        return connection;
+    }
+
+    /**
+     * @param id - receiver's id
+     * @return queue of tasks for the participant with given id, null if messages are sent sequentially
+     * Called while holding sendingLock.
+     */
+    private Executor lane(Integer id) {
+        if (senders == null) {
+            return null;
+        }
+        SerialExecutor lane = lanes.get(id);
+        if (lane == null) {
+            lane = new SerialExecutor(senders);
+            lanes.put(id, lane);
+        }
+        return lane;
+    }
+
+    /**
+     * Returns open connection to the participant with given id, opens a new one if there is none.
+     * Only one message to a participant is being sent at a time, so the connection is not opened twice.
+     * The format negotiated with the participant is remembered for the following connections.
+     * @param id - receiver's id
+     * @param port - receiver's port
+     */
+    private PeerConnection getConnection(Integer id, int port) throws IOException {
+        PeerConnection connection = connections.get(id);
+        if (connection != null && connection.isOpen() && connection.getPort() == port) {
+            return connection;
+        }
+        synchronized (connections) {
+            connection = connections.get(id);
+            if (connection == null || !connection.isOpen() || connection.getPort() != port) {
+                if (connection != null) {
+                    connection.close();
+                }
+                connection = new PeerConnection(port,
+                        !unframedSenders.contains(id) && !Integer.valueOf(port).equals(unframedPeers.get(id)));
+                if (connection.isFramed()) {
+                    unframedPeers.remove(id);
+                } else {
+                    unframedPeers.put(id, port);
+                }
+                connections.put(id, connection);
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Closes the connection to the participant with given id, e.g. when he has left the conference.
+     * Messages given to the transport before are sent first. The format negotiated with him is forgotten.
+     * @param id
+     */
+    public void closeConnection(final Integer id) {
+        unframedPeers.remove(id);
+        unframedSenders.remove(id);
+        Executor lane;
+        synchronized (sendingLock) {
+            lane = lane(id);
+            if (lane != null) {
+                lane.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        disconnect(id);
+                    }
+                });
+            }
+        }
+        if (lane == null) {
+            disconnect(id);
+        }
+    }
+
+    private void disconnect(Integer id) {
+        synchronized (connections) {
+            PeerConnection connection = connections.remove(id);
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Closes given connection and removes it unless it has already been replaced by a new one.
+     * @param id
+     * @param connection - null if no connection has been opened
+     */
+    private void disconnect(Integer id, PeerConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        synchronized (connections) {
+            connections.remove(id, connection);
+            connection.close();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Closes all the outgoing connections.
+     */
+    public void closeConnections() {
+        for (Integer id : connections.keySet()) {
+            closeConnection(id);
+        }
+    }
+
+    /**
+     * Passes received message to the message listener.
+     * Messages from all the connections are delivered one at a time.
+     * @param msg
+     */
+    protected synchronized void deliver(Message.Msg msg) {
+        LOGGER.info(myPort + " received message from: " + msg.getSenderId() + " " + msg.getType());
+        getMessageListener().messageReceived(msg);
+    }
+
+    /**
+     * Passes message received in the original format to the message listener.
+     * The sender is remembered as a participant who does not know the framed format.
+     * @param msg
+     */
+    protected void deliverUnframed(Message.Msg msg) {
+        unframedSenders.add(msg.getSenderId());
+        deliver(msg);
+    }
+
+    public MessageListener getMessageListener() {
+        return messageListener;
+    }
+
+    public void setMessageListener(MessageListener messageListener) {
+        this.messageListener = messageListener;
+    }
+
+    public void setPorts(Map<Integer, Integer> ports) {
+        this.ports = ports instanceof IntIntHashMap ? (IntIntHashMap) ports : new IntIntHashMap(ports);
+    }
+
+    public void addPort(int id, int port) {
+        ports.put(id, port);
+    }
+
+    public void removePort(int id) {
+        ports.remove(id);
+    }
+
+    public Map<Integer, Integer> getPorts() {
+        return Collections.unmodifiableMap(ports);
+    }
+
+    public int getMyPort() {
+        return myPort;
+    }
+}
@@ -0,0 +1,46 @@
+import java.math.BigInteger;
+
+/**
+ * @author Zuzana Melsova
+ * Modular multiplication with a fixed modulus using Barrett reduction.
+ * The division in BigInteger.mod is replaced by two multiplications with a precomputed reciprocal of the modulus,
+ * which is several times faster for numbers of the size of the group parameters.
+ */
+public class BarrettReduction {
+
+    private final BigInteger modulus;
+    private final int k; // Bit length of the modulus.
+    private final BigInteger mu; // floor(4^k / modulus)
+
+    public BarrettReduction(BigInteger modulus) {
+        this.modulus = modulus;
+        this.k = modulus.bitLength();
+        this.mu = BigInteger.ONE.shiftLeft(2 * k).divide(modulus);
+    }
+
+    /**
+     * @param x - number from interval [0, modulus^2)
+     * @return x mod modulus
+     */
+    public BigInteger reduce(BigInteger x) {
+        BigInteger quotient = x.shiftRight(k - 1).multiply(mu).shiftRight(k + 1);
+        BigInteger remainder = x.subtract(quotient.multiply(modulus));
+        while (remainder.compareTo(modulus) >= 0) {
+            remainder = remainder.subtract(modulus);
+        }
+        return remainder;
+    }
+
+    /**
+     * @param a - number from interval [0, modulus)
+     * @param b - number from interval [0, modulus)
+     * @return a * b mod modulus
+     */
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        return reduce(a.multiply(b));
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+}
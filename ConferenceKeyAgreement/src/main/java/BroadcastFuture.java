@@ -0,0 +1,82 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author Zuzana Melsova
+ * Result of sending one message to several participants.
+ * Completes when the message has been sent to all of them, has failed or has timed out,
+ * the result is the set of IDs of participants to whom the message has been sent.
+ */
+public class BroadcastFuture implements Future<Set<Integer>> {
+
+    private final Map<Integer, ? extends Future<Boolean>> sends; // Sending of the message associated with receivers IDs.
+
+    public BroadcastFuture(Map<Integer, ? extends Future<Boolean>> sends) {
+        this.sends = sends;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = false;
+        for (Future<Boolean> send : sends.values()) {
+            cancelled |= send.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+    }
+
+    public boolean isCancelled() {
+        for (Future<Boolean> send : sends.values()) {
+            if (!send.isCancelled()) {
+                return false;
+            }
+        }
+        return !sends.isEmpty();
+    }
+
+    public boolean isDone() {
+        for (Future<Boolean> send : sends.values()) {
+            if (!send.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Set<Integer> get() throws InterruptedException {
+        Set<Integer> succeeded = new HashSet<Integer>();
+        for (Map.Entry<Integer, ? extends Future<Boolean>> send : sends.entrySet()) {
+            try {
+                if (send.getValue().get()) {
+                    succeeded.add(send.getKey());
+                }
+            } catch (CancellationException e) {
+                // Cancelled by cancel() before it has been sent, a timed out sending only returns false.
+            } catch (ExecutionException e) {
+                // Unexpected error, failures of the connection only return false and are logged by the transport.
+            }
+        }
+        return succeeded;
+    }
+
+    public Set<Integer> get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Set<Integer> succeeded = new HashSet<Integer>();
+        for (Map.Entry<Integer, ? extends Future<Boolean>> send : sends.entrySet()) {
+            try {
+                if (send.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    succeeded.add(send.getKey());
+                }
+            } catch (CancellationException e) {
+                // Cancelled by cancel() before it has been sent, a timed out sending only returns false.
+            } catch (ExecutionException e) {
+                // Unexpected error, failures of the connection only return false and are logged by the transport.
+            }
+        }
+        return succeeded;
+    }
+}
@@ -0,0 +1,54 @@
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author Zuzana Melsova
+ * Message serialized once for all its receivers.
+ * The bytes hold the length prefix followed by the message, the array is never modified after it is created,
+ * so it is written to all the connections without copying.
+ */
+public class EncodedMessage {
+
+    private final Message.Msg.Type type;
+    private final byte[] bytes;
+    private final int prefixLength; // Number of bytes of the length prefix.
+
+    public EncodedMessage(Message.Msg msg) {
+        this.type = msg.getType();
+        int size = msg.getSerializedSize();
+        this.prefixLength = CodedOutputStream.computeRawVarint32Size(size);
+        this.bytes = new byte[prefixLength + size];
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        try {
+            out.writeRawVarint32(size);
+            msg.writeTo(out);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new RuntimeException("Serializing to a byte array threw an IOException (should never happen).", e);
+        }
+    }
+
+    /**
+     * Writes the length-delimited message, as Message.Msg.writeDelimitedTo does.
+     * @param out
+     * @throws IOException
+     */
+    public void writeDelimitedTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+
+    /**
+     * Writes the message without the length prefix, as Message.Msg.writeTo does.
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, prefixLength, bytes.length - prefixLength);
+    }
+
+    public Message.Msg.Type getType() {
+        return type;
+    }
+}
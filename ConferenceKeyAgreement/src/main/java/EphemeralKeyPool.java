@@ -0,0 +1,127 @@
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Zuzana Melsova
+ * Buffer of ephemeral keys (k, r = g^k mod p, q - k) generated in background while the participant waits
+ * for a new period, so that the re-keying phase does not need to compute the exponentiation.
+ */
+public class EphemeralKeyPool {
+
+    static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(EphemeralKeyPool.class);
+
+    /**
+     * Private key k, public key r = g^k mod p and exponent q - k used to encrypt sub-keys in one period.
+     */
+    public static class Key {
+        private final BigInteger p; // Modulus and generator of the group in which the key has been generated.
+        private final BigInteger g;
+        private final BigInteger privateKeyK;
+        private final BigInteger publicKeyR;
+        private final BigInteger exponent;
+
+        public Key(BigInteger p, BigInteger g, BigInteger privateKeyK, BigInteger publicKeyR, BigInteger exponent) {
+            this.p = p;
+            this.g = g;
+            this.privateKeyK = privateKeyK;
+            this.publicKeyR = publicKeyR;
+            this.exponent = exponent;
+        }
+
+        public BigInteger getPrivateKeyK() {
+            return privateKeyK;
+        }
+
+        public BigInteger getPublicKeyR() {
+            return publicKeyR;
+        }
+
+        public BigInteger getExponent() {
+            return exponent;
+        }
+    }
+
+    private final BlockingQueue<Key> keys;
+    private final ExecutorService generator;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    /**
+     * @param capacity - maximal number of keys kept in the buffer
+     */
+    public EphemeralKeyPool(int capacity) {
+        keys = new ArrayBlockingQueue<Key>(capacity);
+        generator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ephemeral-keys");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts generating keys in background until the buffer is full, unless it is already being refilled.
+     * @param newKey - generates one key, runs on the background thread, so it must use only values
+     * which are not changed afterwards
+     */
+    public void refill(final Callable<Key> newKey) {
+        if (keys.remainingCapacity() == 0 || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        generator.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (keys.remainingCapacity() > 0 && !generator.isShutdown()) {
+                        keys.offer(newKey.call());
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Error occurred when generating ephemeral keys.", e);
+                } finally {
+                    refilling.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Takes one key generated in the group with given modulus and generator, keys from other groups are discarded.
+     * @param p
+     * @param g
+     * @return the key or null if the buffer is empty
+     */
+    public Key poll(BigInteger p, BigInteger g) {
+        Key key;
+        while ((key = keys.poll()) != null) {
+            if (key.p.equals(p) && key.g.equals(g)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discards all the generated keys.
+     */
+    public void clear() {
+        keys.clear();
+    }
+
+    /**
+     * Stops the background thread after the key being generated, the pool is not refilled afterwards.
+     */
+    public void shutdown() {
+        generator.shutdown();
+        keys.clear();
+    }
+}
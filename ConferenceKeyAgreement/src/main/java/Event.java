@@ -8,6 +8,7 @@ public class Event {
     private EventType type; // Type of event
     private Message.Msg message; // Received message
     private Map<Integer, Integer> participantIdAndPort; // participants selected by initiator
+    private Runnable task; // Query run by the thread processing events
 
     // id an port of the new participant, if someone was added
     private int participantId;
@@ -34,6 +35,11 @@ public class Event {
         this.participantIdAndPort = participantIdAndPort;
     }
 
+    public Event(EventType type, Runnable task) {
+        this.type = type;
+        this.task = task;
+    }
+
     public EventType getType() {
         return type;
     }
@@ -54,4 +60,8 @@ public class Event {
         return participantIdAndPort;
     }
 
+    public Runnable getTask() {
+        return task;
+    }
+
 }
@@ -0,0 +1,95 @@
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Zuzana Melsova
+ * Queue of events processed one at a time by a dedicated thread.
+ * Any thread may post events without locking, e.g. the transport thread receiving messages or the application
+ * calling KeyAgreement methods, and none of them waits for the processing. The handler therefore never runs
+ * concurrently with itself and needs no synchronization of the data it uses.
+ */
+public class EventMailbox {
+
+    static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(EventMailbox.class);
+
+    /**
+     * Processes events taken from the mailbox.
+     */
+    public interface EventHandler {
+        void handle(Event event);
+    }
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<Event>();
+    private final EventHandler handler;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean parked; // Set while the thread waits for new events.
+
+    /**
+     * Starts the thread processing events.
+     * @param name - name of the thread
+     * @param handler
+     */
+    public EventMailbox(String name, EventHandler handler) {
+        this.handler = handler;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processEvents();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds the event to the end of the queue.
+     * @param event
+     */
+    public void post(Event event) {
+        events.offer(event);
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void processEvents() {
+        while (running) {
+            Event event = events.poll();
+            if (event == null) {
+                // The flag is set before the queue is checked again, so an event posted meanwhile either is found
+                // or unparks the thread.
+                parked = true;
+                if (running && events.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+                continue;
+            }
+            try {
+                handler.handle(event);
+            } catch (RuntimeException e) {
+                LOGGER.error("Error occurred when processing event " + event.getType(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops the thread, events remaining in the queue are not processed.
+     * Unless called by the thread itself, waits until the event being processed is finished.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
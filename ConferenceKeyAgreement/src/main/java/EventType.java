@@ -5,5 +5,7 @@ public enum EventType {
     STARTKEYAGREEMENT, // Initiates the key agreement protocol
     MESSAGE, // Message was received.
     ADDPARTICIPANT, LEAVE, // Initiates the re-keying phase with new participant added/removed.
-    CHECK // Starts control if all messages was already received for the current phase of the protocol.
+    CHECK, // Starts control if all messages was already received for the current phase of the protocol.
+    REKEY, // Timer of the coordinator has expired, starts the re-keying phase if the collected membership changes are complete.
+    QUERY // Reads the state of the protocol run, in any state.
 }
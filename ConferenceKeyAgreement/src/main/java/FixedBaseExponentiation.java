@@ -0,0 +1,131 @@
+import java.math.BigInteger;
+
+/**
+ * @author Zuzana Melsova
+ * Exponentiation with a fixed base and modulus using a table of precomputed powers of the base.
+ *
+ * The exponent is split into windows of w bits, the table contains values base^(d * 2^(w*i)) mod m
+ * for each window i and each digit d from 1 to 2^w - 1. A power is then computed only by multiplying
+ * one table value for each non-zero window, no squaring is needed.
+ * The multiplications use Barrett reduction.
+ */
+public class FixedBaseExponentiation {
+
+    // Default number of bits in one window.
+    public static final int DEFAULT_WINDOW = 6;
+
+    private final BigInteger base;
+    private final BigInteger modulus;
+    private final BarrettReduction reduction;
+    private final int window;
+    private final int maxBits; // Maximal bit length of exponents covered by the table.
+    private final BigInteger[][] table;
+
+    /**
+     * Precomputes powers of the base for exponents up to given bit length.
+     * @param base
+     * @param modulus
+     * @param maxBits - maximal bit length of exponents, longer exponents are computed by BigInteger.modPow
+     * @param window - number of bits in one window
+     */
+    public FixedBaseExponentiation(BigInteger base, BigInteger modulus, int maxBits, int window) {
+        this.base = base;
+        this.modulus = modulus;
+        this.reduction = new BarrettReduction(modulus);
+        this.window = window;
+        this.maxBits = maxBits;
+        int windows = (maxBits + window - 1) / window;
+        int digits = 1 << window;
+        table = new BigInteger[windows][digits];
+        BigInteger power = base.mod(modulus); // base^(2^(w*i))
+        for (int i = 0; i < windows; i++) {
+            table[i][1] = power;
+            for (int d = 2; d < digits; d++) {
+                table[i][d] = reduction.multiply(table[i][d - 1], power);
+            }
+            power = reduction.multiply(table[i][digits - 1], power);
+        }
+    }
+
+    public FixedBaseExponentiation(BigInteger base, BigInteger modulus, int maxBits) {
+        this(base, modulus, maxBits, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param exponent
+     * @return base^exponent mod modulus
+     */
+    public BigInteger pow(BigInteger exponent) {
+        if (exponent.signum() < 0 || exponent.bitLength() > maxBits) {
+            return base.modPow(exponent, modulus);
+        }
+        byte[] magnitude = exponent.toByteArray();
+        BigInteger result = BigInteger.ONE.mod(modulus);
+        int windows = (exponent.bitLength() + window - 1) / window;
+        for (int i = 0; i < windows; i++) {
+            int digit = digit(magnitude, i * window, window);
+            if (digit != 0) {
+                result = reduction.multiply(result, table[i][digit]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param base
+     * @param modulus
+     * @return true if this table computes powers of given base modulo given modulus
+     */
+    public boolean matches(BigInteger base, BigInteger modulus) {
+        return this.base.equals(base) && this.modulus.equals(modulus);
+    }
+
+    public int getMaxBits() {
+        return maxBits;
+    }
+
+    /**
+     * @param maxBits - maximal bit length of exponents
+     * @param window - number of bits in one window
+     * @return number of precomputed powers in the table
+     */
+    public static long tableSize(int maxBits, int window) {
+        return (long) ((maxBits + window - 1) / window) << window;
+    }
+
+    /**
+     * Chooses the window minimizing the cost of building the table and computing given number of powers.
+     * @param maxBits - maximal bit length of exponents
+     * @param uses - expected number of computed powers
+     * @return number of bits in one window
+     */
+    public static int optimalWindow(int maxBits, int uses) {
+        int best = 1;
+        long bestCost = Long.MAX_VALUE;
+        for (int window = 1; window <= 8; window++) {
+            long windows = (maxBits + window - 1) / window;
+            long cost = windows * ((1 << window) - 1 + uses);
+            if (cost < bestCost) {
+                best = window;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads bits [from, from + width) of a non-negative number.
+     * @param magnitude - big-endian two's complement representation, as returned by BigInteger.toByteArray()
+     * @param from - index of the lowest bit
+     * @param width
+     */
+    static int digit(byte[] magnitude, int from, int width) {
+        int digit = 0;
+        for (int bit = from + width - 1; bit >= from; bit--) {
+            int index = magnitude.length - 1 - (bit >>> 3);
+            int value = index < 0 ? 0 : (magnitude[index] >>> (bit & 7)) & 1;
+            digit = (digit << 1) | value;
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,133 @@
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * @author Zuzana Melsova
+ * Negotiation of the wire format used on a connection.
+ *
+ * A participant able to send more length-delimited messages through one connection starts the connection
+ * with PREAMBLE and waits for ACK. Participants which do not know the framed format never answer, they read
+ * the connection as one message until it is closed. The sender falls back to the original format after
+ * the handshake timeout: one message per connection, terminated by closing it. Only then the receiver fails
+ * to parse the preamble, because a message can never start with zero byte (the first byte is the tag of field
+ * senderId), and drops the connection. Meanwhile it does not accept other connections.
+ * The transports therefore offer the framed format to a participant only until he is known not to accept it,
+ * either from a timed out offer or from a message he has sent in the original format.
+ */
+public final class Framing {
+
+    // Bytes sent by the sender at the beginning of a framed connection.
+    public static final byte[] PREAMBLE = {0x00, 'C', 'K', 0x01};
+
+    // Byte sent back by the receiver which accepts the framed format.
+    public static final int ACK = 0x01;
+
+    // Largest message accepted by the receiver, a connection sending a larger one is closed.
+    public static final int MAX_MESSAGE_SIZE = 4 * 1024 * 1024;
+
+    // Maximal number of bytes of the length prefix.
+    public static final int MAX_PREFIX_SIZE = 5;
+
+    private Framing() {
+    }
+
+    /**
+     * Offers the framed format on a newly opened connection.
+     * @param socket
+     * @param timeout - maximal time in milliseconds to wait for the answer
+     * @return true if the receiver has accepted the framed format, false otherwise
+     * @throws IOException
+     */
+    public static boolean offer(Socket socket, int timeout) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(PREAMBLE);
+        out.flush();
+        socket.setSoTimeout(timeout);
+        try {
+            return socket.getInputStream().read() == ACK;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } catch (IOException e) {
+            // Connection closed by the receiver without an answer.
+            return false;
+        } finally {
+            if (!socket.isClosed()) {
+                socket.setSoTimeout(0);
+            }
+        }
+    }
+
+    /**
+     * Reads the beginning of an accepted connection and answers the offer of the framed format.
+     * @param in - stream of the accepted connection, the first byte is unread if the connection is not framed
+     * @param out
+     * @return true if the sender uses the framed format, false if he sends one message per connection
+     * @throws IOException if the stream ends before the first byte or the preamble is malformed
+     */
+    public static boolean accept(PushbackInputStream in, OutputStream out) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            throw new EOFException("Connection closed before the first message.");
+        }
+        if (first != PREAMBLE[0]) {
+            in.unread(first);
+            return false;
+        }
+        byte[] preamble = new byte[PREAMBLE.length];
+        preamble[0] = (byte) first;
+        for (int i = 1; i < preamble.length; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Connection closed during negotiation.");
+            }
+            preamble[i] = (byte) b;
+        }
+        checkPreamble(preamble);
+        out.write(ACK);
+        out.flush();
+        return true;
+    }
+
+    /**
+     * @param preamble
+     * @throws InvalidProtocolBufferException if given bytes are not the preamble
+     */
+    public static void checkPreamble(byte[] preamble) throws InvalidProtocolBufferException {
+        if (!Arrays.equals(preamble, PREAMBLE)) {
+            throw new InvalidProtocolBufferException("Unknown connection preamble.");
+        }
+    }
+
+    /**
+     * Reads the length prefix of a message.
+     * @param buffer
+     * @return the length or -1 if the whole prefix is not in the buffer yet
+     * @throws InvalidProtocolBufferException
+     */
+    public static int readRawVarint32(ByteBuffer buffer) throws InvalidProtocolBufferException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            byte b = buffer.get();
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new InvalidProtocolBufferException("Malformed message length.");
+    }
+}
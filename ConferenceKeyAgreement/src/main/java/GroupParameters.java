@@ -0,0 +1,44 @@
+import java.math.BigInteger;
+
+/**
+ * @author Zuzana Melsova
+ * Parameters of the group: prime modulus p, prime order q of the subgroup and its generator g.
+ */
+public class GroupParameters {
+
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger g;
+
+    public GroupParameters(BigInteger p, BigInteger q, BigInteger g) {
+        this.p = p;
+        this.q = q;
+        this.g = g;
+    }
+
+    /**
+     * Checks that p and q are primes, q divides p - 1 and g generates the subgroup of order q.
+     * @param certainty - certainty of the primality tests, see BigInteger.isProbablePrime
+     * @return true if the parameters are valid
+     */
+    public boolean isValid(int certainty) {
+        BigInteger one = BigInteger.ONE;
+        return p.signum() > 0 && q.signum() > 0
+                && p.subtract(one).mod(q).signum() == 0
+                && g.compareTo(one) > 0 && g.compareTo(p) < 0
+                && g.modPow(q, p).equals(one)
+                && q.isProbablePrime(certainty) && p.isProbablePrime(certainty);
+    }
+
+    public BigInteger getP() {
+        return p;
+    }
+
+    public BigInteger getQ() {
+        return q;
+    }
+
+    public BigInteger getG() {
+        return g;
+    }
+}
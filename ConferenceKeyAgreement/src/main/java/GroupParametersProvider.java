@@ -0,0 +1,371 @@
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.math.BigInteger.ONE;
+
+/**
+ * @author Zuzana Melsova
+ * Provides parameters p, q, g of the group, so that the key agreement does not have to wait for the search of primes.
+ *
+ * The parameters are either taken from one of the well-known MODP groups, or generated with given bit lengths of p and q.
+ * The groups of RFC 2409 and RFC 3526 have a safe prime p = 2q + 1 and generator 2, exponents modulo q are as long as p.
+ * The groups of RFC 5114 have a 160 to 256-bit q, so exponents modulo q and the polynomial tables are much shorter.
+ * Generated parameters may be saved to a cache file and loaded from it next time; each line of the file contains
+ * bit lengths of p and q followed by p, q and g in hexadecimal.
+ */
+public class GroupParametersProvider {
+
+    static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(GroupParametersProvider.class);
+
+    // Default bit lengths, q has 1024 bits and p = q * r + 1 for a small r.
+    public static final int DEFAULT_Q_BITS = 1024;
+    public static final int DEFAULT_P_BITS = 1026;
+
+    // Certainty of primality tests of the parameters loaded from the cache file.
+    private static final int CACHE_CERTAINTY = 20;
+
+    // 1024-bit MODP group (RFC 2409, group 2).
+    private static final String MODP_1024 =
+            "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74" +
+            "020BBEA63B139B22514A08798E3404DDEF9519B3CD3A431B302B0A6DF25F1437" +
+            "4FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7ED" +
+            "EE386BFB5A899FA5AE9F24117C4B1FE649286651ECE65381FFFFFFFFFFFFFFFF";
+
+    // 1536-bit MODP group (RFC 3526, group 5).
+    private static final String MODP_1536 =
+            "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74" +
+            "020BBEA63B139B22514A08798E3404DDEF9519B3CD3A431B302B0A6DF25F1437" +
+            "4FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7ED" +
+            "EE386BFB5A899FA5AE9F24117C4B1FE649286651ECE45B3DC2007CB8A163BF05" +
+            "98DA48361C55D39A69163FA8FD24CF5F83655D23DCA3AD961C62F356208552BB" +
+            "9ED529077096966D670C354E4ABC9804F1746C08CA237327FFFFFFFFFFFFFFFF";
+
+    // 2048-bit MODP group (RFC 3526, group 14).
+    private static final String MODP_2048 =
+            "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74" +
+            "020BBEA63B139B22514A08798E3404DDEF9519B3CD3A431B302B0A6DF25F1437" +
+            "4FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7ED" +
+            "EE386BFB5A899FA5AE9F24117C4B1FE649286651ECE45B3DC2007CB8A163BF05" +
+            "98DA48361C55D39A69163FA8FD24CF5F83655D23DCA3AD961C62F356208552BB" +
+            "9ED529077096966D670C354E4ABC9804F1746C08CA18217C32905E462E36CE3B" +
+            "E39E772C180E86039B2783A2EC07A28FB5C55DF06F4C52C9DE2BCBF695581718" +
+            "3995497CEA956AE515D2261898FA051015728E5A8AACAA68FFFFFFFFFFFFFFFF";
+
+    // 3072-bit MODP group (RFC 3526, group 15).
+    private static final String MODP_3072 =
+            "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74" +
+            "020BBEA63B139B22514A08798E3404DDEF9519B3CD3A431B302B0A6DF25F1437" +
+            "4FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7ED" +
+            "EE386BFB5A899FA5AE9F24117C4B1FE649286651ECE45B3DC2007CB8A163BF05" +
+            "98DA48361C55D39A69163FA8FD24CF5F83655D23DCA3AD961C62F356208552BB" +
+            "9ED529077096966D670C354E4ABC9804F1746C08CA18217C32905E462E36CE3B" +
+            "E39E772C180E86039B2783A2EC07A28FB5C55DF06F4C52C9DE2BCBF695581718" +
+            "3995497CEA956AE515D2261898FA051015728E5A8AAAC42DAD33170D04507A33" +
+            "A85521ABDF1CBA64ECFB850458DBEF0A8AEA71575D060C7DB3970F85A6E1E4C7" +
+            "ABF5AE8CDB0933D71E8C94E04A25619DCEE3D2261AD2EE6BF12FFA06D98A0864" +
+            "D87602733EC86A64521F2B18177B200CBBE117577A615D6C770988C0BAD946E2" +
+            "08E24FA074E5AB3143DB5BFCE0FD108E4B82D120A93AD2CAFFFFFFFFFFFFFFFF";
+
+    // 4096-bit MODP group (RFC 3526, group 16).
+    private static final String MODP_4096 =
+            "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74" +
+            "020BBEA63B139B22514A08798E3404DDEF9519B3CD3A431B302B0A6DF25F1437" +
+            "4FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7ED" +
+            "EE386BFB5A899FA5AE9F24117C4B1FE649286651ECE45B3DC2007CB8A163BF05" +
+            "98DA48361C55D39A69163FA8FD24CF5F83655D23DCA3AD961C62F356208552BB" +
+            "9ED529077096966D670C354E4ABC9804F1746C08CA18217C32905E462E36CE3B" +
+            "E39E772C180E86039B2783A2EC07A28FB5C55DF06F4C52C9DE2BCBF695581718" +
+            "3995497CEA956AE515D2261898FA051015728E5A8AAAC42DAD33170D04507A33" +
+            "A85521ABDF1CBA64ECFB850458DBEF0A8AEA71575D060C7DB3970F85A6E1E4C7" +
+            "ABF5AE8CDB0933D71E8C94E04A25619DCEE3D2261AD2EE6BF12FFA06D98A0864" +
+            "D87602733EC86A64521F2B18177B200CBBE117577A615D6C770988C0BAD946E2" +
+            "08E24FA074E5AB3143DB5BFCE0FD108E4B82D120A92108011A723C12A787E6D7" +
+            "88719A10BDBA5B2699C327186AF4E23C1A946834B6150BDA2583E9CA2AD44CE8" +
+            "DBBBC2DB04DE8EF92E8EFC141FBECAA6287C59474E6BC05D99B2964FA090C3A2" +
+            "233BA186515BE7ED1F612970CEE2D7AFB81BDD762170481CD0069127D5B05AA9" +
+            "93B4EA988D8FDDC186FFB7DC90A6C08F4DF435C934063199FFFFFFFFFFFFFFFF";
+
+    // 1024-bit MODP group with 160-bit prime order subgroup (RFC 5114, section 2.1).
+    private static final String MODP_1024_160_P =
+            "B10B8F96A080E01DDE92DE5EAE5D54EC52C99FBCFB06A3C69A6A9DCA52D23B61" +
+            "6073E28675A23D189838EF1E2EE652C013ECB4AEA906112324975C3CD49B83BF" +
+            "ACCBDD7D90C4BD7098488E9C219A73724EFFD6FAE5644738FAA31A4FF55BCCC0" +
+            "A151AF5F0DC8B4BD45BF37DF365C1A65E68CFDA76D4DA708DF1FB2BC2E4A4371";
+    private static final String MODP_1024_160_Q =
+            "F518AA8781A8DF278ABA4E7D64B7CB9D49462353";
+    private static final String MODP_1024_160_G =
+            "A4D1CBD5C3FD34126765A442EFB99905F8104DD258AC507FD6406CFF14266D31" +
+            "266FEA1E5C41564B777E690F5504F213160217B4B01B886A5E91547F9E2749F4" +
+            "D7FBD7D3B9A92EE1909D0D2263F80A76A6A24C087A091F531DBF0A0169B6A28A" +
+            "D662A4D18E73AFA32D779D5918D08BC8858F4DCEF97C2A24855E6EEB22B3B2E5";
+
+    // 2048-bit MODP group with 224-bit prime order subgroup (RFC 5114, section 2.2).
+    private static final String MODP_2048_224_P =
+            "AD107E1E9123A9D0D660FAA79559C51FA20D64E5683B9FD1B54B1597B61D0A75" +
+            "E6FA141DF95A56DBAF9A3C407BA1DF15EB3D688A309C180E1DE6B85A1274A0A6" +
+            "6D3F8152AD6AC2129037C9EDEFDA4DF8D91E8FEF55B7394B7AD5B7D0B6C12207" +
+            "C9F98D11ED34DBF6C6BA0B2C8BBC27BE6A00E0A0B9C49708B3BF8A3170918836" +
+            "81286130BC8985DB1602E714415D9330278273C7DE31EFDC7310F7121FD5A074" +
+            "15987D9ADC0A486DCDF93ACC44328387315D75E198C641A480CD86A1B9E587E8" +
+            "BE60E69CC928B2B9C52172E413042E9B23F10B0E16E79763C9B53DCF4BA80A29" +
+            "E3FB73C16B8E75B97EF363E2FFA31F71CF9DE5384E71B81C0AC4DFFE0C10E64F";
+    private static final String MODP_2048_224_Q =
+            "801C0D34C58D93FE997177101F80535A4738CEBCBF389A99B36371EB";
+    private static final String MODP_2048_224_G =
+            "AC4032EF4F2D9AE39DF30B5C8FFDAC506CDEBE7B89998CAF74866A08CFE4FFE3" +
+            "A6824A4E10B9A6F0DD921F01A70C4AFAAB739D7700C29F52C57DB17C620A8652" +
+            "BE5E9001A8D66AD7C17669101999024AF4D027275AC1348BB8A762D0521BC98A" +
+            "E247150422EA1ED409939D54DA7460CDB5F6C6B250717CBEF180EB34118E98D1" +
+            "19529A45D6F834566E3025E316A330EFBB77A86F0C1AB15B051AE3D428C8F8AC" +
+            "B70A8137150B8EEB10E183EDD19963DDD9E263E4770589EF6AA21E7F5F2FF381" +
+            "B539CCE3409D13CD566AFBB48D6C019181E1BCFE94B30269EDFE72FE9B6AA4BD" +
+            "7B5A0F1C71CFFF4C19C418E1F6EC017981BC087F2A7065B384B890D3191F2BFA";
+
+    // 2048-bit MODP group with 256-bit prime order subgroup (RFC 5114, section 2.3).
+    private static final String MODP_2048_256_P =
+            "87A8E61DB4B6663CFFBBD19C651959998CEEF608660DD0F25D2CEED4435E3B00" +
+            "E00DF8F1D61957D4FAF7DF4561B2AA3016C3D91134096FAA3BF4296D830E9A7C" +
+            "209E0C6497517ABD5A8A9D306BCF67ED91F9E6725B4758C022E0B1EF4275BF7B" +
+            "6C5BFC11D45F9088B941F54EB1E59BB8BC39A0BF12307F5C4FDB70C581B23F76" +
+            "B63ACAE1CAA6B7902D52526735488A0EF13C6D9A51BFA4AB3AD8347796524D8E" +
+            "F6A167B5A41825D967E144E5140564251CCACB83E6B486F6B3CA3F7971506026" +
+            "C0B857F689962856DED4010ABD0BE621C3A3960A54E710C375F26375D7014103" +
+            "A4B54330C198AF126116D2276E11715F693877FAD7EF09CADB094AE91E1A1597";
+    private static final String MODP_2048_256_Q =
+            "8CF83642A709A097B447997640129DA299B1A47D1EB3750BA308B0FE64F5FBD3";
+    private static final String MODP_2048_256_G =
+            "3FB32C9B73134D0B2E77506660EDBD484CA7B18F21EF205407F4793A1A0BA125" +
+            "10DBC15077BE463FFF4FED4AAC0BB555BE3A6C1B0C6B47B1BC3773BF7E8C6F62" +
+            "901228F8C28CBB18A55AE31341000A650196F931C77A57F2DDF463E5E9EC144B" +
+            "777DE62AAAB8A8628AC376D282D6ED3864E67982428EBC831D14348F6F2F9193" +
+            "B5045AF2767164E1DFC967C1FB3F2E55A4BD1BFFE83B9C80D052B985D182EA0A" +
+            "DB2A3B7313D3FE14C8484B1E052588B9B7D2BBD2DF016199ECD06E1557CD0915" +
+            "B3353BBB64E0EC377FD028370DF92B52C7891428CDC67EB6184B523D1DB246C3" +
+            "2F63078490F00EF8D647D148D47954515E2327CFEF98C582664B4C0F6CC41659";
+
+    private static final Map<String, GroupParameters> WELL_KNOWN_GROUPS;
+
+    static {
+        Map<String, GroupParameters> groups = new LinkedHashMap<String, GroupParameters>();
+        groups.put("modp1024", safePrimeGroup(MODP_1024));
+        groups.put("modp1536", safePrimeGroup(MODP_1536));
+        groups.put("modp2048", safePrimeGroup(MODP_2048));
+        groups.put("modp3072", safePrimeGroup(MODP_3072));
+        groups.put("modp4096", safePrimeGroup(MODP_4096));
+        groups.put("modp1024s160", new GroupParameters(new BigInteger(MODP_1024_160_P, 16),
+                new BigInteger(MODP_1024_160_Q, 16), new BigInteger(MODP_1024_160_G, 16)));
+        groups.put("modp2048s224", new GroupParameters(new BigInteger(MODP_2048_224_P, 16),
+                new BigInteger(MODP_2048_224_Q, 16), new BigInteger(MODP_2048_224_G, 16)));
+        groups.put("modp2048s256", new GroupParameters(new BigInteger(MODP_2048_256_P, 16),
+                new BigInteger(MODP_2048_256_Q, 16), new BigInteger(MODP_2048_256_G, 16)));
+        WELL_KNOWN_GROUPS = Collections.unmodifiableMap(groups);
+    }
+
+    private String group; // Name of the well-known group, null to generate parameters.
+    private int pBits = DEFAULT_P_BITS;
+    private int qBits = DEFAULT_Q_BITS;
+    private File cacheFile; // File with previously generated parameters, null if they are not saved.
+
+    /**
+     * @return parameters of the well-known group if it is selected, otherwise parameters of required bit lengths
+     * from the cache file, or newly generated parameters, which are added to the cache file
+     */
+    public GroupParameters getParameters() {
+        if (group != null) {
+            return wellKnownGroup(group);
+        }
+        GroupParameters parameters = cacheFile == null ? null : loadFromCache();
+        if (parameters != null) {
+            return parameters;
+        }
+        LOGGER.info("Generating group parameters, p: " + pBits + " bits, q: " + qBits + " bits...");
+        parameters = generate(pBits, qBits, new Random());
+        if (cacheFile != null) {
+            saveToCache(parameters);
+        }
+        return parameters;
+    }
+
+    /**
+     * @param name - name of the group, e.g. modp2048 or modp2048s256
+     * @return parameters of the well-known group
+     */
+    public static GroupParameters wellKnownGroup(String name) {
+        GroupParameters parameters = WELL_KNOWN_GROUPS.get(name.toLowerCase());
+        if (parameters == null) {
+            throw new IllegalArgumentException("Unknown group " + name + ", available groups: " + WELL_KNOWN_GROUPS.keySet());
+        }
+        return parameters;
+    }
+
+    /**
+     * @param prime - safe prime p in hexadecimal
+     * @return parameters of the group, q = (p - 1) / 2 and g = 2, which is a quadratic residue modulo p
+     */
+    private static GroupParameters safePrimeGroup(String prime) {
+        BigInteger p = new BigInteger(prime, 16);
+        return new GroupParameters(p, p.shiftRight(1), BigInteger.valueOf(2));
+    }
+
+    /**
+     * Generates prime q and prime p = q * r + 1, where r is even, and generator g of the subgroup of order q.
+     * @param pBits - bit length of p, at least qBits + 2
+     * @param qBits - bit length of q
+     * @param rnd
+     * @return new parameters
+     */
+    public static GroupParameters generate(int pBits, int qBits, Random rnd) {
+        if (pBits < qBits + 2) {
+            throw new IllegalArgumentException("p must have at least 2 bits more than q");
+        }
+        BigInteger q;
+        BigInteger p;
+        do {
+            q = BigInteger.probablePrime(qBits, rnd);
+            p = findModulus(q, pBits, rnd);
+        } while (p == null);
+
+        BigInteger exponent = p.subtract(ONE).divide(q);
+        BigInteger g;
+        do {
+            BigInteger h = new BigInteger(pBits, rnd).mod(p);
+            g = h.modPow(exponent, p);
+        } while (g.compareTo(ONE) <= 0);
+        return new GroupParameters(p, q, g);
+    }
+
+    /**
+     * Searches for prime p = q * r + 1 of exactly pBits bits, where r is even, from a random r upwards.
+     * @param q
+     * @param pBits
+     * @param rnd
+     * @return p, or null if there is no such prime between the random r and the largest r giving pBits bits
+     */
+    private static BigInteger findModulus(BigInteger q, int pBits, Random rnd) {
+        // Range of r for which 2^(pBits - 1) <= p < 2^pBits.
+        BigInteger rMin = ONE.shiftLeft(pBits - 1).add(q).subtract(BigInteger.valueOf(2)).divide(q);
+        BigInteger rMax = ONE.shiftLeft(pBits).subtract(BigInteger.valueOf(2)).divide(q);
+        BigInteger span = rMax.subtract(rMin);
+        if (span.signum() < 0) {
+            return null;
+        }
+        BigInteger r = rMin.add(new BigInteger(span.bitLength() + 8, rnd).mod(span.add(ONE)));
+        if (r.testBit(0)) {
+            r = r.add(ONE);
+        }
+        for (; r.compareTo(rMax) <= 0; r = r.add(BigInteger.valueOf(2))) {
+            BigInteger p = q.multiply(r).add(ONE);
+            if (p.bitLength() == pBits && p.isProbablePrime(CACHE_CERTAINTY)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return first valid parameters of required bit lengths from the cache file, null if there are none
+     */
+    private GroupParameters loadFromCache() {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(cacheFile));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split("\\s+");
+                if (values.length != 5 || Integer.parseInt(values[0]) != pBits || Integer.parseInt(values[1]) != qBits) {
+                    continue;
+                }
+                GroupParameters parameters = new GroupParameters(new BigInteger(values[2], 16), new BigInteger(values[3], 16), new BigInteger(values[4], 16));
+                if (parameters.isValid(CACHE_CERTAINTY)) {
+                    LOGGER.info("Group parameters loaded from " + cacheFile);
+                    return parameters;
+                }
+                LOGGER.error("Invalid group parameters in " + cacheFile + " skipped.");
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error occurred when reading group parameters from " + cacheFile, e);
+        } catch (NumberFormatException e) {
+            LOGGER.error("Malformed group parameters in " + cacheFile, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.error("Error occurred when closing " + cacheFile, e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the parameters to the cache file.
+     * @param parameters
+     */
+    private void saveToCache(GroupParameters parameters) {
+        Writer writer = null;
+        try {
+            writer = new FileWriter(cacheFile, true);
+            writer.write(pBits + " " + qBits + " " + parameters.getP().toString(16) + " " + parameters.getQ().toString(16)
+                    + " " + parameters.getG().toString(16) + System.getProperty("line.separator"));
+        } catch (IOException e) {
+            LOGGER.error("Error occurred when saving group parameters to " + cacheFile, e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    LOGGER.error("Error occurred when closing " + cacheFile, e);
+                }
+            }
+        }
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        if (group != null) {
+            wellKnownGroup(group);
+        }
+        this.group = group;
+    }
+
+    public int getPBits() {
+        return pBits;
+    }
+
+    public void setPBits(int pBits) {
+        this.pBits = pBits;
+    }
+
+    public int getQBits() {
+        return qBits;
+    }
+
+    public void setQBits(int qBits) {
+        this.qBits = qBits;
+    }
+
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    public void setCacheFile(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+}
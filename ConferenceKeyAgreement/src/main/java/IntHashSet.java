@@ -0,0 +1,66 @@
+/**
+ * @author Zuzana Melsova
+ * Set of primitive int keys, only the keys are stored.
+ * Shares the table with the int-keyed maps, viewed as a Map it maps every key to TRUE.
+ */
+public class IntHashSet extends AbstractIntKeyMap<Boolean> {
+
+    public IntHashSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize - number of keys which fit into the set without rebuilding it
+     */
+    public IntHashSet(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * @param key
+     * @return true if the key has not been in the set
+     */
+    public boolean add(int key) {
+        return insert(key) < 0;
+    }
+
+    public boolean contains(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * @param key
+     * @return true if the key has been in the set
+     */
+    public boolean remove(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public Boolean put(Integer key, Boolean value) {
+        return add(key) ? null : Boolean.TRUE;
+    }
+
+    @Override
+    public Boolean valueAt(int slot) {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    protected Boolean setValueAt(int slot, Boolean value) {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    protected void clearValue(int slot) {
+    }
+
+    @Override
+    protected void moveValues(int capacity, int[] moves) {
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.Map;
+
+/**
+ * @author Zuzana Melsova
+ * Map from primitive int keys to primitive int values, nothing is boxed unless the Map interface is used.
+ */
+public class IntIntHashMap extends AbstractIntKeyMap<Integer> {
+
+    private int[] values;
+
+    public IntIntHashMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize - number of entries which fit into the map without rebuilding it
+     */
+    public IntIntHashMap(int expectedSize) {
+        super(expectedSize);
+        values = new int[capacityFor(expectedSize)];
+    }
+
+    public IntIntHashMap(Map<Integer, Integer> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    /**
+     * @param key
+     * @param defaultValue
+     * @return value associated with given key, defaultValue if the key is not in the map
+     */
+    public int getInt(int key, int defaultValue) {
+        int slot = slotOf(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    /**
+     * @param slot
+     * @return value in given slot
+     */
+    public int intValueAt(int slot) {
+        return values[slot];
+    }
+
+    public void put(int key, int value) {
+        int slot = insert(key);
+        values[slot < 0 ? -slot - 1 : slot] = value;
+    }
+
+    @Override
+    public Integer put(Integer key, Integer value) {
+        int slot = insert(key);
+        if (slot < 0) {
+            values[-slot - 1] = value;
+            return null;
+        }
+        return setValueAt(slot, value);
+    }
+
+    /**
+     * @param key
+     * @return true if the key has been in the map
+     */
+    public boolean remove(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public Integer valueAt(int slot) {
+        return values[slot];
+    }
+
+    @Override
+    protected Integer setValueAt(int slot, Integer value) {
+        int previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    @Override
+    protected void clearValue(int slot) {
+        values[slot] = 0;
+    }
+
+    @Override
+    protected void moveValues(int capacity, int[] moves) {
+        int[] moved = new int[capacity];
+        for (int old = 0; old < moves.length; old++) {
+            if (moves[old] >= 0) {
+                moved[moves[old]] = values[old];
+            }
+        }
+        values = moved;
+    }
+}
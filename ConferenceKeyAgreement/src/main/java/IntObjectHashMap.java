@@ -0,0 +1,85 @@
+import java.util.Map;
+
+/**
+ * @author Zuzana Melsova
+ * Map from primitive int keys to objects, the keys are not boxed unless the Map interface is used.
+ */
+public class IntObjectHashMap<V> extends AbstractIntKeyMap<V> {
+
+    private Object[] values;
+
+    public IntObjectHashMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize - number of entries which fit into the map without rebuilding it
+     */
+    public IntObjectHashMap(int expectedSize) {
+        super(expectedSize);
+        values = new Object[capacityFor(expectedSize)];
+    }
+
+    public IntObjectHashMap(Map<Integer, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    public V get(int key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    public V put(int key, V value) {
+        int slot = insert(key);
+        if (slot < 0) {
+            values[-slot - 1] = value;
+            return null;
+        }
+        return setValueAt(slot, value);
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    public V remove(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = valueAt(slot);
+        removeSlot(slot);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    @Override
+    protected V setValueAt(int slot, V value) {
+        V previous = valueAt(slot);
+        values[slot] = value;
+        return previous;
+    }
+
+    @Override
+    protected void clearValue(int slot) {
+        values[slot] = null;
+    }
+
+    @Override
+    protected void moveValues(int capacity, int[] moves) {
+        Object[] moved = new Object[capacity];
+        for (int old = 0; old < moves.length; old++) {
+            if (moves[old] >= 0) {
+                moved[moves[old]] = values[old];
+            }
+        }
+        values = moved;
+    }
+}
@@ -1,4 +1,6 @@
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Future;
 /**
  * @author Zuzana Melsova
  * This class handles start of key agreement protocol and adding/removing participants.
@@ -13,9 +15,18 @@ public class KeyAgreement {
      * @param port
      */
     public KeyAgreement(int id, int port) {
+        this(id, new SelectorSockets(port));
+    }
+
+    /**
+     * Creates an instance which represents a participant with given id communicating through given transport.
+     * @param id
+     * @param transport
+     */
+    public KeyAgreement(int id, MessageTransport transport) {
         stateEngine = new KeyAgreementEngine(State.INITIAL,
                 new ParticipantData(id),
-                new Sockets(port));
+                transport);
     }
 
     /**
@@ -42,6 +53,21 @@ public class KeyAgreement {
         stateEngine.processEvent(new Event(EventType.ADDPARTICIPANT, id, port));
     }
 
+    /**
+     * Starts one re-keying phase with all the new participants.
+     * @param newParticipants - ports associated with the new members' IDs
+     */
+    public void addParticipants(Map<Integer, Integer> newParticipants) {
+        stateEngine.processEvent(new Event(EventType.ADDPARTICIPANT, new HashMap<Integer, Integer>(newParticipants)));
+    }
+
+    /**
+     * @return future snapshot of the protocol run, which may be read from any thread
+     */
+    public Future<KeyAgreementStatus> getStatus() {
+        return stateEngine.queryStatus();
+    }
+
     public KeyAgreementEngine getStateEngine() {
         return stateEngine;
     }
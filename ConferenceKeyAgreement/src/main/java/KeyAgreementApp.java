@@ -8,6 +8,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -30,6 +31,53 @@ public class KeyAgreementApp {
     @Option(name = "-logFile", usage = "Output file for logger")
     private String logFile;
 
+    @Option(name = "-senderThreads", usage = "Number of threads sending messages to participants concurrently, 0 to send sequentially")
+    private int senderThreads;
+
+    @Option(name = "-sendTimeout", usage = "Time in milliseconds after which sending a message to one participant is abandoned")
+    private long sendTimeout = 5000;
+
+    @Option(name = "-unicastPart2", usage = "Send to each participant only the sub-key encrypted for him")
+    private boolean unicastPart2;
+
+    @Option(name = "-batchVerification", usage = "Verify sub-keys of all participants by one combined equation")
+    private boolean batchVerification;
+
+    @Option(name = "-precomputeSubKeys", usage = "Compute sub-keys for all periods when the secret polynomial is generated")
+    private boolean precomputeSubKeys;
+
+    @Option(name = "-ephemeralKeys", usage = "Number of keys for encryption of sub-keys generated in advance, 0 to generate them when needed")
+    private int ephemeralKeys;
+
+    @Option(name = "-eagerDecryption", usage = "Decrypt and verify each sub-key as soon as it arrives")
+    private boolean eagerDecryption;
+
+    @Option(name = "-computationThreads", usage = "Number of threads computing exponentiations for all participants, 1 to compute sequentially")
+    private int computationThreads = 1;
+
+    @Option(name = "-polynomialTableLimit", usage = "Maximal number of precomputed powers of the public polynomial of each participant, "
+            + "each of them takes memory of the size of p, 0 to evaluate the polynomials without them")
+    private int polynomialTableLimit = ParticipantData.DEFAULT_POLYNOMIAL_TABLE_LIMIT;
+
+    @Option(name = "-membershipWindow", usage = "Time in milliseconds for which joining and leaving participants are collected into one new period")
+    private long membershipWindow;
+
+    @Option(name = "-joinTimeout", usage = "Time in milliseconds for which participants invited together are waited for")
+    private long joinTimeout = KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT;
+
+    @Option(name = "-group", usage = "Well-known group to use: modp1024, modp1536, modp2048, modp3072, modp4096 (safe primes), "
+            + "modp1024s160, modp2048s224 or modp2048s256 (RFC 5114, short q)")
+    private String group;
+
+    @Option(name = "-pBits", usage = "Bit length of generated group modulus p")
+    private int pBits = GroupParametersProvider.DEFAULT_P_BITS;
+
+    @Option(name = "-qBits", usage = "Bit length of generated subgroup order q")
+    private int qBits = GroupParametersProvider.DEFAULT_Q_BITS;
+
+    @Option(name = "-groupCache", usage = "File in which generated group parameters are saved for later use")
+    private File groupCache;
+
 
     public static void main(String[] args) {
         new KeyAgreementApp().doMain(args);
@@ -64,12 +112,36 @@ public class KeyAgreementApp {
             return;
         }
 
+        if (group != null) {
+            try {
+                GroupParametersProvider.wellKnownGroup(group);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                return;
+            }
+        }
+
         // Set logging output
         updateLog4jConfiguration(logFile);
 
         // Create KeyAgreement instance
         KeyAgreement keyAgreement = new KeyAgreement(id, port);
         keyAgreement.getStateEngine().getParticipantData().setNumOfPeriods(NUMBER_OF_PERIODS);
+        GroupParametersProvider groupParameters = keyAgreement.getStateEngine().getParticipantData().getGroupParametersProvider();
+        groupParameters.setPBits(pBits);
+        groupParameters.setQBits(qBits);
+        groupParameters.setCacheFile(groupCache);
+        groupParameters.setGroup(group);
+        keyAgreement.getStateEngine().getParticipantData().setBatchVerification(batchVerification);
+        keyAgreement.getStateEngine().getParticipantData().setPrecomputeSubKeys(precomputeSubKeys);
+        keyAgreement.getStateEngine().getParticipantData().setEphemeralKeyPoolSize(ephemeralKeys);
+        keyAgreement.getStateEngine().getParticipantData().setComputationThreads(computationThreads);
+        keyAgreement.getStateEngine().getParticipantData().setEagerDecryption(eagerDecryption);
+        keyAgreement.getStateEngine().getParticipantData().setPolynomialTableLimit(polynomialTableLimit);
+        keyAgreement.getStateEngine().getSockets().setConcurrentSending(senderThreads, sendTimeout);
+        keyAgreement.getStateEngine().setUnicastPart2(unicastPart2);
+        keyAgreement.getStateEngine().setMembershipWindow(membershipWindow);
+        keyAgreement.getStateEngine().setJoinTimeout(joinTimeout);
 
         // Process command line commands
         Scanner sc = new Scanner(System.in);
@@ -77,7 +149,7 @@ public class KeyAgreementApp {
             String line = sc.nextLine().trim();
 
             if (line.equals("exit")) {
-                keyAgreement.getStateEngine().getSockets().stop();
+                keyAgreement.getStateEngine().stop();
                 return;
             }
 
@@ -88,6 +160,7 @@ public class KeyAgreementApp {
                     String[] idAndPort = line.split(" ");
                     if (idAndPort.length != 2) {
                         System.err.println("Error: Invalid arguments");
+                        continue;
                     }
                     try {
                         map.put(Integer.parseInt(idAndPort[0]), Integer.parseInt(idAndPort[1]));
@@ -109,6 +182,7 @@ public class KeyAgreementApp {
                 String[] idAndPort = sc.nextLine().split(" ");
                 if (idAndPort.length != 2) {
                     System.err.println("Error: Invalid arguments");
+                    continue;
                 }
                 try {
                     keyAgreement.addParticipant(Integer.parseInt(idAndPort[0]), Integer.parseInt(idAndPort[1]));
@@ -117,6 +191,25 @@ public class KeyAgreementApp {
                 }
                 continue;
             }
+
+            if (line.equals("addall")) {
+                Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+                System.out.println("Type in <id port> of the new participants:");
+                while (!(line = sc.nextLine()).equals("start")) {
+                    String[] idAndPort = line.split(" ");
+                    if (idAndPort.length != 2) {
+                        System.err.println("Error: Invalid arguments");
+                        continue;
+                    }
+                    try {
+                        map.put(Integer.parseInt(idAndPort[0]), Integer.parseInt(idAndPort[1]));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error: Invalid arguments:" + e);
+                    }
+                }
+                keyAgreement.addParticipants(map);
+                continue;
+            }
         }
     }
 }
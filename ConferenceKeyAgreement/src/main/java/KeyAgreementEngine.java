@@ -3,6 +3,13 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Zuzana Melsova
@@ -12,22 +19,85 @@ public class KeyAgreementEngine {
 
     static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(KeyAgreementEngine.class);
 
+    // CHECK events carry no data, the same instance is used for all of them.
+    private static final Event CHECK = new Event(EventType.CHECK);
+
     private State state;
     private ParticipantData participantData;
-    private Sockets sockets;
+    private MessageTransport sockets;
+
+    // If true, each participant receives KeyAgreementPart2 message with only the sub-key encrypted for him.
+    private boolean unicastPart2;
+
+    // Events waiting to be processed by the protocol thread.
+    private final EventMailbox mailbox;
+
+    // Events caused by processing of the current event, processed before the next event from the mailbox.
+    private final Queue<Event> scheduled = new ArrayDeque<Event>();
+
+    // Time in milliseconds for which membership changes are collected into one new period, 0 to start re-keying immediately.
+    // Only the coordinator collects the changes, the other members start the new period when they learn his decision.
+    private long membershipWindow;
+    private boolean windowOpen;
+    private long windowDeadline; // Value of System.nanoTime() at which the open window closes.
+    private ScheduledExecutorService windowTimer;
+
+    // True if this participant belongs to the group, a new participant becomes a member when a period including him starts.
+    private boolean member;
+
+    // True if this participant has sent Leaving message, he stays in the group until a period without him starts.
+    private boolean leaveRequested;
+
+    // Joining messages from new participants who have not been included in a period yet, in the order of arrival.
+    private final Map<Integer, Message.Msg> pendingJoins = new LinkedHashMap<Integer, Message.Msg>();
+    // Values of System.nanoTime() at which the pending Joining messages have arrived.
+    private final Map<Integer, Long> joinArrivals = new HashMap<Integer, Long>();
+
+    // Default time in milliseconds for which new participants invited together are waited for.
+    public static final long DEFAULT_JOIN_TIMEOUT = 10000;
+
+    // Time in milliseconds for which the coordinator waits for all the participants invited together and the inviter
+    // keeps inviting them. Participants who have not joined until then are dropped.
+    private long joinTimeout = DEFAULT_JOIN_TIMEOUT;
+
+    // Value of System.nanoTime() at which REKEY event is scheduled.
+    private long rekeyDeadline;
+    private boolean rekeyScheduled;
+
+    // Members who have sent Leaving message and have not been excluded from a period yet.
+    private final Set<Integer> pendingLeaves = new HashSet<Integer>();
+
+    // KeyAgreementPart2 message for the next period carrying the membership changes decided by the coordinator,
+    // null if the next period has not started yet.
+    private Message.Msg.KeyAgreementPart2 nextPeriodChanges;
+
+    // KeyAgreementPart2 messages from new participants received before the period including them has been started here.
+    private final Map<Integer, List<Message.Msg>> parkedPart2 = new HashMap<Integer, List<Message.Msg>>();
+
+    // New participants invited by this participant who have not been included in a period yet.
+    private final List<Invitation> invitations = new ArrayList<Invitation>();
+
+    // Requests to add participants or to leave made before they can be processed, processed in the next WAITFORNEWPERIOD state.
+    private final Queue<Event> deferredEvents = new ArrayDeque<Event>();
 
 
     /**
      * Constructor
-     * Define method messageReceived used in class Sockets.
+     * Define method messageReceived used by the transport and start the thread processing events.
      * @param state
      * @param participantData
      * @param sockets
      */
-    public KeyAgreementEngine(State state, ParticipantData participantData, Sockets sockets) {
+    public KeyAgreementEngine(State state, ParticipantData participantData, MessageTransport sockets) {
         this.state = state;
         this.participantData = participantData;
         this.sockets = sockets;
+        this.mailbox = new EventMailbox("key-agreement-" + participantData.getId(), new EventMailbox.EventHandler() {
+            @Override
+            public void handle(Event event) {
+                dispatch(event);
+            }
+        });
         this.sockets.setMessageListener(new MessageListener() {
             @Override
             public void messageReceived(Message.Msg message) {
@@ -37,10 +107,72 @@ public class KeyAgreementEngine {
     }
 
     /**
-     * Implements a state machine for the protocol run.
+     * Passes the event to the thread running the protocol, returns without waiting for the processing.
+     * Events are processed one at a time in the order in which they have been passed.
      * @param event
      */
     public void processEvent(Event event) {
+        mailbox.post(event);
+    }
+
+    /**
+     * Takes a snapshot of the protocol run on the thread processing events, after the events passed before.
+     * Unlike the data of ParticipantData, the snapshot may be read from any thread.
+     * The future is not completed if the engine is stopped before the query is processed.
+     * @return future snapshot of the protocol run
+     */
+    public Future<KeyAgreementStatus> queryStatus() {
+        FutureTask<KeyAgreementStatus> query = new FutureTask<KeyAgreementStatus>(new Callable<KeyAgreementStatus>() {
+            @Override
+            public KeyAgreementStatus call() {
+                IntObjectHashMap<PublicData> participants = participantData.getParticipants();
+                Set<Integer> ids = new HashSet<Integer>();
+                for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+                    ids.add(participants.keyAt(slot));
+                }
+                return new KeyAgreementStatus(state, member, participantData.getCurrentPeriod(), ids,
+                        participantData.getConferenceKey());
+            }
+        });
+        processEvent(new Event(EventType.QUERY, query));
+        return query;
+    }
+
+    /**
+     * Processes the event and then all the events scheduled during its processing, in a loop instead of
+     * nested calls, so that a chain of state transitions does not grow the stack.
+     * Called only by the thread processing events, one event from the mailbox at a time.
+     * @param event
+     */
+    private void dispatch(Event event) {
+        scheduled.offer(event);
+        try {
+            Event next;
+            while ((next = scheduled.poll()) != null) {
+                handleEvent(next);
+            }
+        } finally {
+            scheduled.clear();
+        }
+    }
+
+    /**
+     * Schedules the event to be processed after the current one.
+     * @param event
+     */
+    private void schedule(Event event) {
+        scheduled.offer(event);
+    }
+
+    /**
+     * Implements a state machine for the protocol run, called only by the thread processing events.
+     * @param event
+     */
+    private void handleEvent(Event event) {
+        if (event.getType() == EventType.QUERY) {
+            event.getTask().run();
+            return;
+        }
         switch (state) {
 
             case INITIAL: {
@@ -52,10 +184,11 @@ public class KeyAgreementEngine {
                         LOGGER.info("Starting key agreement protocol from port " + sockets.getMyPort());
 
                         // Set participants
-                        sockets.getPorts().putAll(event.getParticipantIdAndPort());
-                        for (Integer id : event.getParticipantIdAndPort().keySet()) {
-                            participantData.getParticipants().put(id, new PublicData());
+                        for (Map.Entry<Integer, Integer> participant : event.getParticipantIdAndPort().entrySet()) {
+                            sockets.addPort(participant.getKey(), participant.getValue());
+                            participantData.addParticipant(participant.getKey(), new PublicData());
                         }
+                        member = true;
 
                         participantData.generateGroupParameters();
 
@@ -74,7 +207,7 @@ public class KeyAgreementEngine {
                         state = State.PART1SENT;
 
                         // Check if all KeyAgreementPart1 messages have been received.
-                        processEvent(new Event(EventType.CHECK));
+                        schedule(CHECK);
                         break;
                     }
                     case MESSAGE: {
@@ -84,6 +217,7 @@ public class KeyAgreementEngine {
                                 LOGGER.info("Protocol initialization started, sending message KeyAgreementPart1...");
 
                                 saveDataFromInitMsg(event.getMessage());
+                                member = true;
 
                                 // Generate long-term public values
                                 participantData.generatePublicKeyY();
@@ -94,7 +228,7 @@ public class KeyAgreementEngine {
 
                                 state = State.PART1SENT;
                                 // Check if all KeyAgreementPart1 messages have been received.
-                                processEvent(new Event(EventType.CHECK));
+                                schedule(CHECK);
                                 break;
                             }
                             case KEYAGREEMENTPART1: {
@@ -110,16 +244,17 @@ public class KeyAgreementEngine {
                                 // Generate long-term public values
                                 participantData.generatePublicKeyY();
                                 participantData.computePublicPolynomial();
-                                sendJoiningMsg(sockets.getMyPort());
-
-                                // Start the re-keying phase of the protocol, send KeyAgreementPart2 message.
-                                participantData.evaluateSecretPolynomial();
-                                participantData.encryptSubKeys();
-                                sendKeyAgreementPart2();
-                                state = State.PART2SENT;
+                                sendJoiningMsg(event.getMessage());
 
-                                // Check if all KeyAgreementPart2 messages have been received.
-                                processEvent(new Event(EventType.CHECK));
+                                // Wait until the coordinator starts a period including me, then send KeyAgreementPart2 message.
+                                state = State.WAITFORNEWPERIOD;
+                                schedule(CHECK);
+                                break;
+                            }
+                            case JOINING: {
+                                // Added to existing group together with the sender, but AddParticipant message has not arrived yet.
+                                // Save data from Joining message for later use.
+                                recordJoining(event.getMessage());
                             }
                         }
                     }
@@ -131,27 +266,18 @@ public class KeyAgreementEngine {
                 switch (event.getType()) {
                     case CHECK: {
                         // Check if all KeyAgreementPart1 messages have been received.
-                        boolean continueToPart2 = true;
-                        for (PublicData data : participantData.getParticipants().values()) {
-                            if (!data.isPart1received()) {
-                                continueToPart2 = false;
-                                break;
-                            }
-                        }
-
-
-                        if (continueToPart2) {
+                        if (participantData.isPart1Complete()) {
                             // Send second part of the key agreement data
 
                             LOGGER.info("Sending key agreement data part 2...");
 
                             participantData.evaluateSecretPolynomial();
                             participantData.encryptSubKeys();
-                            sendKeyAgreementPart2();
+                            sendKeyAgreementPart2(Collections.<Integer>emptyList(), Collections.<Integer>emptyList());
                             state = State.PART2SENT;
 
                             // Check if all KeyAgreementPart2 messages have been received.
-                            processEvent(new Event(EventType.CHECK));
+                            schedule(CHECK);
                         }
                         break;
                     }
@@ -160,15 +286,31 @@ public class KeyAgreementEngine {
                             case KEYAGREEMENTPART1: {
                                 // Process KeyAgreementPart1 message, check if all KeyAgreementPart1 messages have been received.
                                 saveDataFromKeyAgreementPart1(event.getMessage());
-                                processEvent(new Event(EventType.CHECK));
+                                schedule(CHECK);
                             }
                             break;
                             case KEYAGREEMENTPART2: {
                                 // Not all KeyAgreementPart1 messages have arrived yet. Save data from KeyAgreementPart2 message for later use.
-                                saveDataFromKeyAgreementPart2(event.getMessage());
+                                receiveKeyAgreementPart2(event.getMessage());
+                            }
+                            break;
+                            case JOINING: {
+                                // New participant will be included in one of the following periods.
+                                recordJoining(event.getMessage());
+                            }
+                            break;
+                            case LEAVING: {
+                                // The sender will be excluded in one of the following periods.
+                                recordLeaving(event.getMessage());
                             }
                         }
                     }
+                    break;
+                    case ADDPARTICIPANT:
+                    case LEAVE: {
+                        // The current period is being established, process the request afterwards.
+                        deferredEvents.offer(event);
+                    }
                 }
             }
             break;
@@ -176,15 +318,7 @@ public class KeyAgreementEngine {
                 switch (event.getType()) {
                     case CHECK: {
                         // Check if all KeyAgreementPart2 messages have been received.
-                        boolean part2received = true;
-                        for (PublicData data : participantData.getParticipants().values()) {
-                            if (data.getPeriod() != participantData.getCurrentPeriod()) {
-                                part2received = false;
-                                break;
-                            }
-                        }
-
-                        if (part2received) {
+                        if (participantData.isPart2Complete()) {
                             // Compute secret key
                             participantData.decryptSubKeys();
                             if (participantData.verifySubKeys()) {
@@ -192,82 +326,127 @@ public class KeyAgreementEngine {
                                 System.out.println("CONFERENCE KEY: " + key);
                                 LOGGER.info("Key agreement succeeded.");
                             } else {
-                                LOGGER.error("Key verification failed, stopping key agreement protocol.");
+                                if (participantData.getInvalidParticipant() == null) {
+                                    LOGGER.error("Key verification failed, generator g does not have order q, stopping key agreement protocol.");
+                                } else {
+                                    LOGGER.error("Key verification of the sub-key from " + participantData.getInvalidParticipant() + " failed, stopping key agreement protocol.");
+                                }
                                 stopKeyAgreement();
+                                break;
                             }
                             state = State.WAITFORNEWPERIOD;
+                            // Prepare keys for the next period while waiting
+                            participantData.refillEphemeralKeys();
+
+                            // Process requests made during the re-keying, then membership changes collected meanwhile.
+                            List<Event> requests = new ArrayList<Event>(deferredEvents);
+                            deferredEvents.clear();
+                            for (Event request : requests) {
+                                schedule(request);
+                            }
+                            schedule(CHECK);
                         }
                         break;
                     }
                     case MESSAGE: {
-                        if (event.getMessage().getType().equals(Message.Msg.Type.KEYAGREEMENTPART2)) {
-                            // Process KeyAgreementPart2 message, check if all KeyAgreementPart2 messages have been received.
-                            saveDataFromKeyAgreementPart2(event.getMessage());
-                            processEvent(new Event(EventType.CHECK));
+                        switch (event.getMessage().getType()) {
+                            case KEYAGREEMENTPART2: {
+                                // Process KeyAgreementPart2 message, check if all KeyAgreementPart2 messages have been received.
+                                // A message for the next period is kept together with the membership changes it carries.
+                                receiveKeyAgreementPart2(event.getMessage());
+                                schedule(CHECK);
+                            }
+                            break;
+                            case JOINING: {
+                                // New participant will be included in one of the following periods.
+                                recordJoining(event.getMessage());
+                            }
+                            break;
+                            case LEAVING: {
+                                // The sender will be excluded in one of the following periods.
+                                recordLeaving(event.getMessage());
+                            }
                         }
                     }
+                    break;
+                    case ADDPARTICIPANT:
+                    case LEAVE: {
+                        // The current period is being established, process the request afterwards.
+                        deferredEvents.offer(event);
+                    }
                 }
             }
             break;
 
             case WAITFORNEWPERIOD: {
                 switch (event.getType()) {
+                    case CHECK:
+                    case REKEY: {
+                        // Start the next period if it has been decided, or decide it as the coordinator.
+                        startNextPeriod();
+                    }
+                    break;
                     case MESSAGE: {
                         switch (event.getMessage().getType()) {
                             case KEYAGREEMENTPART2: {
-                                // New period started but neither Joining nor Leaving message has been received yet. Save data from KeyAgreementPart2 message for later use.
-                                saveDataFromKeyAgreementPart2(event.getMessage());
+                                // A message for the next period carries the membership changes decided by the coordinator.
+                                receiveKeyAgreementPart2(event.getMessage());
+                                schedule(CHECK);
                             }
                             break;
 
                             case JOINING: {
-                                // New participant has been added. Start the re-keying phase.
-                                participantData.updatePeriod();
-                                if (participantData.getCurrentPeriod() == participantData.getNumOfPeriods()) {
-                                    System.out.println("Last period");
-                                } else if (participantData.getCurrentPeriod() > participantData.getNumOfPeriods()) {
-                                    stopKeyAgreement();
-                                }
-                                saveDataFromJoiningMsg(event.getMessage());
-                                participantData.evaluateSecretPolynomial();
-                                participantData.encryptSubKeys();
-                                //Send new KeyAgreementPart2 message.
-                                sendKeyAgreementPart2();
-                                state = State.PART2SENT;
-                                processEvent(new Event(EventType.CHECK));
-
+                                // New participant will be included in the next period if the coordinator decides so.
+                                recordJoining(event.getMessage());
+                                schedule(CHECK);
                             }
                             break;
                             case LEAVING: {
-                                // The sender has left the group. Start the re-keying phase.
-                                participantData.updatePeriod();
-                                if (participantData.getCurrentPeriod() == participantData.getNumOfPeriods()) {
-                                    System.out.println("Last period");
-                                } else if (participantData.getCurrentPeriod() > participantData.getNumOfPeriods()) {
-                                    stopKeyAgreement();
+                                // The sender will be excluded from the next period.
+                                recordLeaving(event.getMessage());
+                                schedule(CHECK);
+                            }
+                            break;
+                            case ADDPARTICIPANT: {
+                                // Invited again, because the period to which I was invited has started without me.
+                                if (!member) {
+                                    saveDataFromAddParticipantMsg(event.getMessage());
+                                    sendJoiningMsg(event.getMessage());
+                                    schedule(CHECK);
                                 }
-                                participantData.getParticipants().remove(event.getMessage().getSenderId());
-                                sockets.getPorts().remove(event.getMessage().getSenderId());
-                                participantData.evaluateSecretPolynomial();
-                                participantData.encryptSubKeys();
-                                //Send new KeyAgreementPart2 message.
-                                sendKeyAgreementPart2();
-                                state = State.PART2SENT;
-                                processEvent(new Event(EventType.CHECK));
                             }
                         }
                     }
                     break;
                     case ADDPARTICIPANT: {
-                        // Invite new participant, send to him AddParticipantMsg message.
-                        sockets.getPorts().put(event.getParticipantId(), event.getPort());
-                        sendAddParticipantMsg(event.getParticipantId());
+                        // Invite new participants, send to each of them AddParticipantMsg message.
+                        // All of them are listed in the messages, so that they join in the same period.
+                        if (!member) {
+                            deferredEvents.offer(event);
+                            break;
+                        }
+                        // They are not sent messages for everyone until they have been included in a period.
+                        Map<Integer, Integer> newcomers = event.getParticipantIdAndPort();
+                        if (newcomers == null) {
+                            newcomers = Collections.singletonMap(event.getParticipantId(), event.getPort());
+                        }
+                        Invitation invitation = new Invitation(newcomers, participantData.getCurrentPeriod() + 1,
+                                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(joinTimeout));
+                        invitations.add(invitation);
+                        sendAddParticipantMsgs(invitation);
                     }
                     break;
                     case LEAVE: {
-                        // Send Leaving message to the other participants.
-                        sendLeavingMsg();
-                        stopKeyAgreement();
+                        // Send Leaving message to the other participants and wait for a period without me.
+                        if (!member) {
+                            deferredEvents.offer(event);
+                            break;
+                        }
+                        if (!leaveRequested) {
+                            leaveRequested = true;
+                            sendLeavingMsg();
+                            schedule(CHECK);
+                        }
                     }
                 }
             }
@@ -275,6 +454,333 @@ public class KeyAgreementEngine {
     }
 
 
+    /**
+     * Starts the next period if the coordinator's decision about it is known and data of all the new members have arrived.
+     * Otherwise, if this participant is the coordinator, decides which membership changes the next period includes.
+     * Participants invited to a period which has started without them are invited again.
+     */
+    private void startNextPeriod() {
+        if (member) {
+            renewInvitations();
+        }
+        if (nextPeriodChanges != null) {
+            for (Integer id : nextPeriodChanges.getJoinedList()) {
+                if (id != participantData.getId() && !pendingJoins.containsKey(id)) {
+                    // Joining message from the new member has not arrived yet.
+                    return;
+                }
+            }
+            Message.Msg.KeyAgreementPart2 changes = nextPeriodChanges;
+            nextPeriodChanges = null;
+            startPeriod(changes.getPeriod(), changes.getJoinedList(), changes.getLeftList());
+            return;
+        }
+        if (!member || !isCoordinator()) {
+            return;
+        }
+        if (leaveRequested && participantData.getParticipants().isEmpty()) {
+            // The last member has left.
+            stopKeyAgreement();
+            return;
+        }
+        decideNextPeriod();
+    }
+
+    /**
+     * The coordinator is the member with the lowest id who has not requested to leave, or the member with the lowest id
+     * if all of them have requested to leave. All the members know the same members of the current period,
+     * so they agree on the coordinator, except that a member who has requested to leave never considers himself one.
+     * @return true if this participant decides the membership changes of the next period
+     */
+    private boolean isCoordinator() {
+        int me = participantData.getId();
+        int lowest = me;
+        int lowestStaying = leaveRequested ? Integer.MAX_VALUE : me;
+        IntObjectHashMap<PublicData> participants = participantData.getParticipants();
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+            int id = participants.keyAt(slot);
+            lowest = Math.min(lowest, id);
+            if (!pendingLeaves.contains(id)) {
+                lowestStaying = Math.min(lowestStaying, id);
+            }
+        }
+        return (lowestStaying == Integer.MAX_VALUE ? lowest : lowestStaying) == me;
+    }
+
+    /**
+     * Decides which of the collected membership changes the next period includes and starts it, the decision is sent
+     * to the other members in KeyAgreementPart2 messages. If the membership window is set, changes are collected
+     * until it closes. Changes arriving later are included in one of the following periods.
+     */
+    private void decideNextPeriod() {
+        int period = participantData.getCurrentPeriod() + 1;
+        List<Integer> left = new ArrayList<Integer>();
+        for (Integer id : pendingLeaves) {
+            if (participantData.getParticipants().containsKey(id)) {
+                left.add(id);
+            }
+        }
+        List<Integer> joined = new ArrayList<Integer>();
+        long joinersPending = selectJoiners(period, joined);
+        if (left.isEmpty() && joined.isEmpty() && joinersPending < 0) {
+            return;
+        }
+        if (membershipWindow > 0) {
+            if (!windowOpen) {
+                windowOpen = true;
+                windowDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(membershipWindow);
+            }
+            long remaining = windowDeadline - System.nanoTime();
+            if (remaining > 0) {
+                scheduleRekey(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                return;
+            }
+        }
+        if (joinersPending >= 0) {
+            // Wait for Joining messages from all the participants added together, at most until the join timeout.
+            scheduleRekey(joinersPending);
+            return;
+        }
+        startPeriod(period, joined, left);
+    }
+
+    /**
+     * Selects new participants invited to given period, whose Joining messages have arrived. Participants added together
+     * are included together, so that they know each other, only one group of them is included in one period.
+     * If some of them have not sent Joining message within the join timeout after the first one, the others
+     * are included without them.
+     * @param period
+     * @param joined - list to which IDs of the selected participants are added
+     * @return time in milliseconds until the join timeout of participants added together who have not all sent
+     * Joining message yet, -1 if no participants are waited for
+     */
+    private long selectJoiners(int period, List<Integer> joined) {
+        long now = System.nanoTime();
+        long pending = -1;
+        for (Message.Msg joining : pendingJoins.values()) {
+            if (joining.getJoining().getPeriod() != period) {
+                continue;
+            }
+            List<Integer> present = new ArrayList<Integer>();
+            List<Integer> missing = new ArrayList<Integer>();
+            present.add(joining.getSenderId());
+            long firstArrival = joinArrivals.get(joining.getSenderId());
+            for (Integer id : joining.getJoining().getCoJoinersList()) {
+                Message.Msg coJoining = pendingJoins.get(id);
+                if (coJoining != null && coJoining.getJoining().getPeriod() == period) {
+                    present.add(id);
+                    firstArrival = Math.min(firstArrival, joinArrivals.get(id));
+                } else {
+                    missing.add(id);
+                }
+            }
+            long remaining = firstArrival + TimeUnit.MILLISECONDS.toNanos(joinTimeout) - now;
+            if (missing.isEmpty() || remaining <= 0) {
+                if (!missing.isEmpty()) {
+                    LOGGER.warn("Participants " + missing + " have not joined in time, including " + present + " without them.");
+                }
+                joined.addAll(present);
+                return -1;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+            pending = pending < 0 ? millis : Math.min(pending, millis);
+        }
+        return pending;
+    }
+
+    /**
+     * Starts new period with the membership changes decided by the coordinator and sends KeyAgreementPart2 message.
+     * @param period - the new period
+     * @param joined - IDs of the new members included from the period
+     * @param left - IDs of the members excluded from the period
+     */
+    private void startPeriod(int period, List<Integer> joined, List<Integer> left) {
+        int me = participantData.getId();
+        if (left.contains(me)) {
+            LOGGER.info("Left the group in period " + period + ".");
+            stopKeyAgreement();
+            return;
+        }
+        windowOpen = false;
+        member = true;
+        for (Integer id : left) {
+            participantData.removeParticipant(id);
+            pendingLeaves.remove(id);
+        }
+        for (Integer id : joined) {
+            Message.Msg joining = pendingJoins.remove(id);
+            if (joining != null) {
+                saveDataFromJoiningMsg(joining);
+            }
+        }
+        // Participants invited to this or an earlier period who have not been included have to be invited again.
+        for (Iterator<Message.Msg> joinings = pendingJoins.values().iterator(); joinings.hasNext(); ) {
+            if (joinings.next().getJoining().getPeriod() <= period) {
+                joinings.remove();
+            }
+        }
+        joinArrivals.keySet().retainAll(pendingJoins.keySet());
+        for (Iterator<Invitation> pending = invitations.iterator(); pending.hasNext(); ) {
+            if (!Collections.disjoint(pending.next().getNewcomers().keySet(), joined)) {
+                pending.remove();
+            }
+        }
+
+        participantData.updatePeriod();
+        if (participantData.getCurrentPeriod() == participantData.getNumOfPeriods()) {
+            System.out.println("Last period");
+        } else if (participantData.getCurrentPeriod() > participantData.getNumOfPeriods()) {
+            stopKeyAgreement();
+            return;
+        }
+        participantData.evaluateSecretPolynomial();
+        participantData.encryptSubKeys();
+        //Send new KeyAgreementPart2 message, also to the members who have left, so that they learn the decision.
+        sendKeyAgreementPart2(joined, left);
+        for (Integer id : left) {
+            sockets.removePort(id);
+            sockets.closeConnection(id);
+        }
+        replayParkedPart2();
+        // Messages of faster participants for this period arrived while it was the next one.
+        participantData.decryptBufferedSubKeys();
+        state = State.PART2SENT;
+        schedule(CHECK);
+    }
+
+    /**
+     * Invites again participants whose invitation was for a period which has already started without them,
+     * until the join timeout expires.
+     */
+    private void renewInvitations() {
+        for (Iterator<Invitation> pending = invitations.iterator(); pending.hasNext(); ) {
+            Invitation invitation = pending.next();
+            if (invitation.getNextPeriod() > participantData.getCurrentPeriod()) {
+                continue;
+            }
+            if (System.nanoTime() - invitation.getDeadline() >= 0) {
+                LOGGER.warn("Participants " + invitation.getNewcomers().keySet() + " have not joined in time.");
+                pending.remove();
+            } else {
+                invitation.setNextPeriod(participantData.getCurrentPeriod() + 1);
+                sendAddParticipantMsgs(invitation);
+            }
+        }
+    }
+
+    /**
+     * Schedules REKEY event, e.g. when the membership window closes. Nothing is scheduled if an earlier REKEY event
+     * is already waiting.
+     * @param delay - time in milliseconds after which REKEY event is processed
+     */
+    private void scheduleRekey(long delay) {
+        long now = System.nanoTime();
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(delay);
+        if (rekeyScheduled && rekeyDeadline - now > 0 && deadline - rekeyDeadline >= 0) {
+            return;
+        }
+        rekeyScheduled = true;
+        rekeyDeadline = deadline;
+        if (windowTimer == null) {
+            windowTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "membership-window-" + participantData.getId());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        windowTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                processEvent(new Event(EventType.REKEY));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves Joining message of a new participant until the coordinator includes him in a period.
+     * A message for a period which has already started is outdated, the participant will be invited again.
+     * A message without period comes from a participant who does not know periods of invitations, he joins the next period.
+     * @param msg
+     */
+    private void recordJoining(Message.Msg msg) {
+        int id = msg.getSenderId();
+        if (participantData.getParticipants().containsKey(id)) {
+            return;
+        }
+        if (!msg.getJoining().hasPeriod()) {
+            msg = msg.toBuilder()
+                    .setJoining(msg.getJoining().toBuilder().setPeriod(participantData.getCurrentPeriod() + 1))
+                    .build();
+        }
+        if (member && msg.getJoining().getPeriod() <= participantData.getCurrentPeriod()) {
+            LOGGER.info("Joining message for period " + msg.getJoining().getPeriod() + " from participant " + id + " is outdated.");
+            return;
+        }
+        pendingJoins.remove(id);
+        pendingJoins.put(id, msg);
+        joinArrivals.put(id, System.nanoTime());
+    }
+
+    /**
+     * Saves the request of a member to leave until the coordinator excludes him from a period.
+     * @param msg
+     */
+    private void recordLeaving(Message.Msg msg) {
+        if (participantData.getParticipants().containsKey(msg.getSenderId())) {
+            pendingLeaves.add(msg.getSenderId());
+        }
+    }
+
+    /**
+     * Saves data from KeyAgreementPart2 message. The first message for the next period gives the membership changes
+     * of the period. A message from a new participant who is not known yet is kept until the period including him starts.
+     * @param msg
+     */
+    private void receiveKeyAgreementPart2(Message.Msg msg) {
+        Message.Msg.KeyAgreementPart2 part2 = msg.getKeyAgreementPart2();
+        if (nextPeriodChanges == null && part2.getPeriod() == participantData.getCurrentPeriod() + 1
+                && (member || part2.getJoinedList().contains(participantData.getId()))) {
+            nextPeriodChanges = part2;
+        }
+        int id = msg.getSenderId();
+        if (!participantData.getParticipants().containsKey(id) && pendingJoins.containsKey(id)) {
+            List<Message.Msg> parked = parkedPart2.get(id);
+            if (parked == null) {
+                parked = new ArrayList<Message.Msg>();
+                parkedPart2.put(id, parked);
+            }
+            if (parked.size() == PublicData.PART2_BUFFER_SIZE) {
+                parked.remove(0);
+            }
+            parked.add(msg);
+            return;
+        }
+        saveDataFromKeyAgreementPart2(msg);
+        participantData.decryptSubKey(id);
+    }
+
+    /**
+     * Processes kept KeyAgreementPart2 messages from participants who have become members,
+     * discards messages from participants who will not be included.
+     */
+    private void replayParkedPart2() {
+        for (Iterator<Map.Entry<Integer, List<Message.Msg>>> entries = parkedPart2.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<Integer, List<Message.Msg>> entry = entries.next();
+            if (participantData.getParticipants().containsKey(entry.getKey())) {
+                for (Message.Msg msg : entry.getValue()) {
+                    saveDataFromKeyAgreementPart2(msg);
+                    participantData.decryptSubKey(entry.getKey());
+                }
+                entries.remove();
+            } else if (!pendingJoins.containsKey(entry.getKey())) {
+                entries.remove();
+            }
+        }
+    }
+
     private Message.Msg.KeyAgreementPart1.Builder preparePart1() {
         Message.Msg.KeyAgreementPart1.Builder keyAgreementPart1 = Message.Msg.KeyAgreementPart1.newBuilder()
                 .setPubKeyY(ByteString.copyFrom(participantData.getPublicKeyY().toByteArray()));
@@ -284,14 +790,17 @@ public class KeyAgreementEngine {
         return keyAgreementPart1;
     }
 
-    private Message.Msg.KeyAgreementPart2.Builder preparePart2() {
+    private Message.Msg.KeyAgreementPart2.Builder preparePart2(List<Integer> joined, List<Integer> left) {
         Message.Msg.KeyAgreementPart2.Builder keyAgreementPart2 = Message.Msg.KeyAgreementPart2.newBuilder()
                 .setPeriod(participantData.getCurrentPeriod())
-                .setPubKeyR(ByteString.copyFrom(participantData.getPublicKeyR().toByteArray()));
-        for (Map.Entry<Integer, BigInteger> entry : participantData.getEncryptedSubKeys().entrySet()) {
+                .setPubKeyR(ByteString.copyFrom(participantData.getPublicKeyR().toByteArray()))
+                .addAllJoined(joined)
+                .addAllLeft(left);
+        IntObjectHashMap<BigInteger> encryptedSubKeys = participantData.getEncryptedSubKeys();
+        for (int slot = encryptedSubKeys.nextSlot(-1); slot >= 0; slot = encryptedSubKeys.nextSlot(slot)) {
             Message.Msg.KeyAgreementPart2.EncryptedSubKey.Builder subKey = Message.Msg.KeyAgreementPart2.EncryptedSubKey.newBuilder();
-            subKey.setId(entry.getKey());
-            subKey.setSubKey(ByteString.copyFrom(entry.getValue().toByteArray()));
+            subKey.setId(encryptedSubKeys.keyAt(slot));
+            subKey.setSubKey(ByteString.copyFrom(encryptedSubKeys.valueAt(slot).toByteArray()));
             keyAgreementPart2.addEncryptedSubKeys(subKey);
         }
         return keyAgreementPart2;
@@ -320,8 +829,16 @@ public class KeyAgreementEngine {
                 .build());
     }
 
-    private void sendKeyAgreementPart2() {
-        Message.Msg.KeyAgreementPart2.Builder keyAgreementPart2 = preparePart2();
+    /**
+     * @param joined - IDs of the new members included from the current period
+     * @param left - IDs of the members excluded from the current period
+     */
+    private void sendKeyAgreementPart2(List<Integer> joined, List<Integer> left) {
+        if (unicastPart2) {
+            sendKeyAgreementPart2ToEach(joined, left);
+            return;
+        }
+        Message.Msg.KeyAgreementPart2.Builder keyAgreementPart2 = preparePart2(joined, left);
         sockets.sendMsgToEveryone(Message.Msg.newBuilder()
                 .setSenderId(participantData.getId())
                 .setType(Message.Msg.Type.KEYAGREEMENTPART2)
@@ -329,6 +846,45 @@ public class KeyAgreementEngine {
                 .build());
     }
 
+    /**
+     * Sends to each participant KeyAgreementPart2 message containing only the sub-key encrypted for him.
+     * The members who have left receive the message without any sub-key.
+     * @param joined - IDs of the new members included from the current period
+     * @param left - IDs of the members excluded from the current period
+     */
+    private void sendKeyAgreementPart2ToEach(List<Integer> joined, List<Integer> left) {
+        ByteString pubKeyR = ByteString.copyFrom(participantData.getPublicKeyR().toByteArray());
+        IntObjectHashMap<BigInteger> encryptedSubKeys = participantData.getEncryptedSubKeys();
+        for (int slot = encryptedSubKeys.nextSlot(-1); slot >= 0; slot = encryptedSubKeys.nextSlot(slot)) {
+            Message.Msg.KeyAgreementPart2.EncryptedSubKey.Builder subKey = Message.Msg.KeyAgreementPart2.EncryptedSubKey.newBuilder()
+                    .setId(encryptedSubKeys.keyAt(slot))
+                    .setSubKey(ByteString.copyFrom(encryptedSubKeys.valueAt(slot).toByteArray()));
+            Message.Msg.KeyAgreementPart2.Builder keyAgreementPart2 = Message.Msg.KeyAgreementPart2.newBuilder()
+                    .setPeriod(participantData.getCurrentPeriod())
+                    .setPubKeyR(pubKeyR)
+                    .addEncryptedSubKeys(subKey)
+                    .addAllJoined(joined)
+                    .addAllLeft(left);
+            sockets.sendMsgTo(Message.Msg.newBuilder()
+                    .setSenderId(participantData.getId())
+                    .setType(Message.Msg.Type.KEYAGREEMENTPART2)
+                    .setKeyAgreementPart2(keyAgreementPart2)
+                    .build(), encryptedSubKeys.keyAt(slot));
+        }
+        for (Integer id : left) {
+            Message.Msg.KeyAgreementPart2.Builder keyAgreementPart2 = Message.Msg.KeyAgreementPart2.newBuilder()
+                    .setPeriod(participantData.getCurrentPeriod())
+                    .setPubKeyR(pubKeyR)
+                    .addAllJoined(joined)
+                    .addAllLeft(left);
+            sockets.sendMsgTo(Message.Msg.newBuilder()
+                    .setSenderId(participantData.getId())
+                    .setType(Message.Msg.Type.KEYAGREEMENTPART2)
+                    .setKeyAgreementPart2(keyAgreementPart2)
+                    .build(), id);
+        }
+    }
+
     private void sendInitMsg(Map<Integer, Integer> idAndPortList) {
         Message.Msg.InitMsg.Builder init = prepareInitMsg(idAndPortList);
         sockets.sendMsgToEveryone(Message.Msg.newBuilder()
@@ -345,31 +901,65 @@ public class KeyAgreementEngine {
                 .build());
     }
 
-    private void sendJoiningMsg(int port) {
+    /**
+     * @param addParticipant - AddParticipant message inviting this participant
+     */
+    private void sendJoiningMsg(Message.Msg addParticipant) {
         Message.Msg.KeyAgreementPart1.Builder keyAgreementPart1 = preparePart1();
+        List<Integer> coJoiners = addParticipant.getAddParticipant().getCoJoinersList();
         Message.Msg.Joining.Builder joining = Message.Msg.Joining.newBuilder()
-                .setPort(port)
-                .setKeyAgreementPart1(keyAgreementPart1);
-        sockets.sendMsgToEveryone(Message.Msg.newBuilder()
+                .setPort(sockets.getMyPort())
+                .setKeyAgreementPart1(keyAgreementPart1)
+                .addAllCoJoiners(coJoiners)
+                .setPeriod(addParticipant.getAddParticipant().getNextPeriod());
+        Message.Msg msg = Message.Msg.newBuilder()
                 .setSenderId(participantData.getId())
                 .setType(Message.Msg.Type.JOINING)
                 .setJoining(joining)
-                .build());
+                .build();
+        sockets.sendMsgToEveryone(msg);
+        // Participants added together with me are not members yet, they get the message separately.
+        for (Message.Msg.InitMsg.IdAndPort idAndPort : addParticipant.getAddParticipant().getInit().getIdAndPortList()) {
+            if (coJoiners.contains(idAndPort.getId())) {
+                sockets.sendMsgTo(msg, idAndPort.getId(), idAndPort.getPort());
+            }
+        }
+    }
+
+    /**
+     * Sends AddParticipantMsg message to each of the invited participants.
+     * @param invitation
+     */
+    private void sendAddParticipantMsgs(Invitation invitation) {
+        for (Integer id : invitation.getNewcomers().keySet()) {
+            sendAddParticipantMsg(id, invitation);
+        }
     }
 
-    private void sendAddParticipantMsg(Integer id) {
-        Map idsAndPorts = new HashMap();
-        idsAndPorts.putAll(sockets.getPorts());
+    /**
+     * Sends AddParticipantMsg message with the members and the other participants invited together.
+     * @param id - id of the invited participant
+     * @param invitation
+     */
+    private void sendAddParticipantMsg(Integer id, Invitation invitation) {
+        Map<Integer, Integer> idsAndPorts = new HashMap<Integer, Integer>(sockets.getPorts());
         idsAndPorts.put(participantData.getId(), sockets.getMyPort());
+        idsAndPorts.putAll(invitation.getNewcomers());
         Message.Msg.InitMsg.Builder init = prepareInitMsg(idsAndPorts);
         Message.Msg.AddParticipant.Builder addParticipant = Message.Msg.AddParticipant.newBuilder()
-                .setNextPeriod(participantData.getCurrentPeriod() + 1)
+                .setNextPeriod(invitation.getNextPeriod())
                 .setInit(init);
-        for (Map.Entry<Integer, PublicData> participant : participantData.getParticipants().entrySet()) {
+        for (Integer coJoiner : invitation.getNewcomers().keySet()) {
+            if (!coJoiner.equals(id)) {
+                addParticipant.addCoJoiners(coJoiner);
+            }
+        }
+        IntObjectHashMap<PublicData> participants = participantData.getParticipants();
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
             Message.Msg.AddParticipant.PublicData.Builder publicData = Message.Msg.AddParticipant.PublicData.newBuilder()
-                    .setId(participant.getKey())
-                    .setPubKeyY(ByteString.copyFrom(participant.getValue().getPublicKeyY().toByteArray()));
-            for (BigInteger coefficient : participant.getValue().getPublicPolynomial()) {
+                    .setId(participants.keyAt(slot))
+                    .setPubKeyY(ByteString.copyFrom(participants.valueAt(slot).getPublicKeyY().toByteArray()));
+            for (BigInteger coefficient : participants.valueAt(slot).getPublicPolynomial()) {
                 publicData.addPubPolynomial(ByteString.copyFrom(coefficient.toByteArray()));
             }
             addParticipant.addPublicData(publicData);
@@ -385,7 +975,7 @@ public class KeyAgreementEngine {
                 .setSenderId(participantData.getId())
                 .setType(Message.Msg.Type.ADDPARTICIPANT)
                 .setAddParticipant(addParticipant)
-                .build(), id);
+                .build(), id, invitation.getNewcomers().get(id));
     }
 
 
@@ -395,30 +985,32 @@ public class KeyAgreementEngine {
         for (ByteString value : msg.getKeyAgreementPart1().getPubPolynomialList()) {
             pubPolynomial.add(new BigInteger(value.toByteArray()));
         }
-        if (participantData.getParticipants().containsKey(id)) {
-            participantData.getParticipants().get(id).setPublicKeyY(new BigInteger(msg.getKeyAgreementPart1().getPubKeyY().toByteArray()));
-            participantData.getParticipants().get(id).setPublicPolynomial(pubPolynomial);
-            participantData.getParticipants().get(id).setPart1received(true);
-        } else {
-            PublicData participant = new PublicData();
-            participant.setPublicKeyY(new BigInteger(msg.getKeyAgreementPart1().getPubKeyY().toByteArray()));
-            participant.setPublicPolynomial(pubPolynomial);
-            participant.setPart1received(true);
-            participantData.getParticipants().put(id, participant);
+        if (!participantData.getParticipants().containsKey(id)) {
+            participantData.addParticipant(id, new PublicData());
         }
+        participantData.getParticipants().get(id).setPublicKeyY(new BigInteger(msg.getKeyAgreementPart1().getPubKeyY().toByteArray()));
+        participantData.getParticipants().get(id).setPublicPolynomial(pubPolynomial);
+        participantData.part1Received(id);
+        participantData.precomputePolynomialPowers(participantData.getParticipants().get(id));
     }
 
 
     private void saveDataFromKeyAgreementPart2(Message.Msg msg) {
         int id = msg.getSenderId();
-        PublicData participant = participantData.getParticipants().get(id);
-        participant.setPublicKeyR(new BigInteger(msg.getKeyAgreementPart2().getPubKeyR().toByteArray()));
-        participant.setPeriod(msg.getKeyAgreementPart2().getPeriod());
+        BigInteger publicKeyR = new BigInteger(msg.getKeyAgreementPart2().getPubKeyR().toByteArray());
+        BigInteger encryptedSubKey = null;
         for (Message.Msg.KeyAgreementPart2.EncryptedSubKey subKey : msg.getKeyAgreementPart2().getEncryptedSubKeysList()) {
             if (subKey.getId() == this.participantData.getId()) {
-                participant.setEncryptedSubKey(new BigInteger(subKey.getSubKey().toByteArray()));
+                encryptedSubKey = new BigInteger(subKey.getSubKey().toByteArray());
             }
         }
+        int period = msg.getKeyAgreementPart2().getPeriod();
+        if (!participantData.getParticipants().containsKey(id)) {
+            LOGGER.warn("KeyAgreementPart2 message for period " + period + " from unknown participant " + id + " ignored.");
+        } else if (!participantData.part2Received(id, period, publicKeyR, encryptedSubKey)) {
+            LOGGER.warn("KeyAgreementPart2 message for period " + period + " from participant " + id
+                    + " ignored, period " + participantData.getCurrentPeriod() + " is current.");
+        }
 
     }
 
@@ -433,18 +1025,23 @@ public class KeyAgreementEngine {
         participant.setPublicKeyY(new BigInteger(msg.getJoining().getKeyAgreementPart1().getPubKeyY().toByteArray()));
         participant.setPublicPolynomial(pubPolynomial);
         participant.setPart1received(true);
-        participantData.getParticipants().put(id, participant);
-        sockets.getPorts().put(id, msg.getJoining().getPort());
+        participantData.addParticipant(id, participant);
+        participantData.precomputePolynomialPowers(participant);
+        sockets.addPort(id, msg.getJoining().getPort());
     }
 
     private void saveDataFromAddParticipantMsg(Message.Msg msg) {
         participantData.setP(new BigInteger(msg.getAddParticipant().getInit().getP().toByteArray()));
         participantData.setQ(new BigInteger(msg.getAddParticipant().getInit().getQ().toByteArray()));
         participantData.setG(new BigInteger(msg.getAddParticipant().getInit().getG().toByteArray()));
-        participantData.setCurrentPeriod(msg.getAddParticipant().getNextPeriod());
-        Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+        // The current period is the one before the period to which I have been invited, until the coordinator includes me.
+        participantData.clearParticipants();
+        participantData.setCurrentPeriod(msg.getAddParticipant().getNextPeriod() - 1);
+        // Messages for everyone are sent only to the members, participants invited together with me are not members yet.
+        IntIntHashMap map = new IntIntHashMap(msg.getAddParticipant().getInit().getIdAndPortCount());
+        List<Integer> coJoiners = msg.getAddParticipant().getCoJoinersList();
         for (Message.Msg.InitMsg.IdAndPort idAndPort : msg.getAddParticipant().getInit().getIdAndPortList()) {
-            if (idAndPort.getId() != participantData.getId()) {
+            if (idAndPort.getId() != participantData.getId() && !coJoiners.contains(idAndPort.getId())) {
                 map.put(idAndPort.getId(), idAndPort.getPort());
             }
         }
@@ -454,21 +1051,25 @@ public class KeyAgreementEngine {
             for (ByteString value : publicData.getPubPolynomialList()) {
                 pubPolynomial.add(new BigInteger(value.toByteArray()));
             }
-            participantData.getParticipants().put(publicData.getId(), new PublicData(new BigInteger(publicData.getPubKeyY().toByteArray()), pubPolynomial));
+            PublicData participant = new PublicData(new BigInteger(publicData.getPubKeyY().toByteArray()), pubPolynomial);
+            participant.setPart1received(true);
+            participantData.addParticipant(publicData.getId(), participant);
         }
+        // Participants added together with me send their public values in Joining message,
+        // they become members together with me.
     }
 
     private void saveDataFromInitMsg(Message.Msg msg) {
         participantData.setG(new BigInteger(msg.getInit().getG().toByteArray()));
         participantData.setP(new BigInteger(msg.getInit().getP().toByteArray()));
         participantData.setQ(new BigInteger(msg.getInit().getQ().toByteArray()));
-        Map<Integer, Integer> ports = new HashMap<Integer, Integer>();
+        IntIntHashMap ports = new IntIntHashMap(msg.getInit().getIdAndPortCount());
 
         for (Message.Msg.InitMsg.IdAndPort participant : msg.getInit().getIdAndPortList()) {
             if (participant.getId() != participantData.getId()) {
 
                 if (!participantData.getParticipants().containsKey(participant.getId())) {
-                    participantData.getParticipants().put(participant.getId(), new PublicData());
+                    participantData.addParticipant(participant.getId(), new PublicData());
                 }
                 ports.put(participant.getId(), participant.getPort());
             }
@@ -481,15 +1082,93 @@ public class KeyAgreementEngine {
      */
     public void stopKeyAgreement() {
         state = State.INITIAL;
-        participantData.getParticipants().clear();
-        sockets.getPorts().clear();
+        windowOpen = false;
+        member = false;
+        leaveRequested = false;
+        pendingJoins.clear();
+        joinArrivals.clear();
+        pendingLeaves.clear();
+        nextPeriodChanges = null;
+        parkedPart2.clear();
+        invitations.clear();
+        deferredEvents.clear();
+        participantData.clearParticipants();
+        sockets.setPorts(Collections.<Integer, Integer>emptyMap());
+        sockets.closeConnections();
+    }
+
+    /**
+     * Stops processing of events and listening to incoming messages, and the background threads of the participant.
+     */
+    public void stop() {
+        mailbox.stop();
+        if (windowTimer != null) {
+            windowTimer.shutdownNow();
+        }
+        sockets.stop();
+        participantData.shutdown();
     }
 
     public ParticipantData getParticipantData() {
         return participantData;
     }
 
-    public Sockets getSockets() {
+    public MessageTransport getSockets() {
         return sockets;
     }
+
+    public boolean isUnicastPart2() {
+        return unicastPart2;
+    }
+
+    public void setUnicastPart2(boolean unicastPart2) {
+        this.unicastPart2 = unicastPart2;
+    }
+
+    public long getMembershipWindow() {
+        return membershipWindow;
+    }
+
+    public void setMembershipWindow(long membershipWindow) {
+        this.membershipWindow = membershipWindow;
+    }
+
+    public long getJoinTimeout() {
+        return joinTimeout;
+    }
+
+    public void setJoinTimeout(long joinTimeout) {
+        this.joinTimeout = joinTimeout;
+    }
+
+    /**
+     * Participants invited together to the next period by this participant.
+     */
+    private static class Invitation {
+        private final Map<Integer, Integer> newcomers; // Ports associated with the new participants IDs.
+        private int nextPeriod;
+        private final long deadline; // Value of System.nanoTime() after which the participants are not invited again.
+
+        private Invitation(Map<Integer, Integer> newcomers, int nextPeriod, long deadline) {
+            this.newcomers = new HashMap<Integer, Integer>(newcomers);
+            this.nextPeriod = nextPeriod;
+            this.deadline = deadline;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public Map<Integer, Integer> getNewcomers() {
+            return newcomers;
+        }
+
+        public int getNextPeriod() {
+            return nextPeriod;
+        }
+
+        public void setNextPeriod(int nextPeriod) {
+            this.nextPeriod = nextPeriod;
+        }
+    }
 }
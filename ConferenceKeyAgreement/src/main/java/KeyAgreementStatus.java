@@ -0,0 +1,49 @@
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * @author Zuzana Melsova
+ * Snapshot of the protocol run of one participant, taken by the thread processing events.
+ * It does not change afterwards, so any thread may read it.
+ */
+public class KeyAgreementStatus {
+    private final State state;
+    private final boolean member; // True if the participant belongs to the group.
+    private final int period;
+    private final Set<Integer> participants; // IDs of the other participants known to the participant
+    private final BigInteger conferenceKey; // The last computed key, null if none has been computed yet.
+
+    public KeyAgreementStatus(State state, boolean member, int period, Set<Integer> participants, BigInteger conferenceKey) {
+        this.state = state;
+        this.member = member;
+        this.period = period;
+        this.participants = Collections.unmodifiableSet(participants);
+        this.conferenceKey = conferenceKey;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isMember() {
+        return member;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public Set<Integer> getParticipants() {
+        return participants;
+    }
+
+    public BigInteger getConferenceKey() {
+        return conferenceKey;
+    }
+
+    @Override
+    public String toString() {
+        return "state " + state + ", period " + period + ", participants " + participants + ", key " + conferenceKey;
+    }
+}
@@ -1048,6 +1048,58 @@ public final class Message {
        */
       Message.Msg.KeyAgreementPart2.EncryptedSubKeyOrBuilder getEncryptedSubKeysOrBuilder(
           int index);
+
+      // repeated int32 joined = 4;
+      /**
+       * <code>repeated int32 joined = 4;</code>
+       *
+       * <pre>
+       * membership changes of this period decided by the coordinator, the same in all the messages for the period
+       * </pre>
+       */
+      java.util.List<java.lang.Integer> getJoinedList();
+      /**
+       * <code>repeated int32 joined = 4;</code>
+       *
+       * <pre>
+       * membership changes of this period decided by the coordinator, the same in all the messages for the period
+       * </pre>
+       */
+      int getJoinedCount();
+      /**
+       * <code>repeated int32 joined = 4;</code>
+       *
+       * <pre>
+       * membership changes of this period decided by the coordinator, the same in all the messages for the period
+       * </pre>
+       */
+      int getJoined(int index);
+
+      // repeated int32 left = 5;
+      /**
+       * <code>repeated int32 left = 5;</code>
+       *
+       * <pre>
+       * IDs of the members excluded from this period
+       * </pre>
+       */
+      java.util.List<java.lang.Integer> getLeftList();
+      /**
+       * <code>repeated int32 left = 5;</code>
+       *
+       * <pre>
+       * IDs of the members excluded from this period
+       * </pre>
+       */
+      int getLeftCount();
+      /**
+       * <code>repeated int32 left = 5;</code>
+       *
+       * <pre>
+       * IDs of the members excluded from this period
+       * </pre>
+       */
+      int getLeft(int index);
     }
     /**
      * Protobuf type {@code Msg.KeyAgreementPart2}
@@ -1118,6 +1170,48 @@ public final class Message {
                 encryptedSubKeys_.add(input.readMessage(Message.Msg.KeyAgreementPart2.EncryptedSubKey.PARSER, extensionRegistry));
                 break;
               }
+              case 32: {
+                if (!((mutable_bitField0_ & 0x00000008) == 0x00000008)) {
+                  joined_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000008;
+                }
+                joined_.add(input.readInt32());
+                break;
+              }
+              case 34: {
+                int length = input.readRawVarint32();
+                int limit = input.pushLimit(length);
+                if (!((mutable_bitField0_ & 0x00000008) == 0x00000008) && input.getBytesUntilLimit() > 0) {
+                  joined_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000008;
+                }
+                while (input.getBytesUntilLimit() > 0) {
+                  joined_.add(input.readInt32());
+                }
+                input.popLimit(limit);
+                break;
+              }
+              case 40: {
+                if (!((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                  left_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000010;
+                }
+                left_.add(input.readInt32());
+                break;
+              }
+              case 42: {
+                int length = input.readRawVarint32();
+                int limit = input.pushLimit(length);
+                if (!((mutable_bitField0_ & 0x00000010) == 0x00000010) && input.getBytesUntilLimit() > 0) {
+                  left_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000010;
+                }
+                while (input.getBytesUntilLimit() > 0) {
+                  left_.add(input.readInt32());
+                }
+                input.popLimit(limit);
+                break;
+              }
             }
           }
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1129,6 +1223,12 @@ public final class Message {
           if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
             encryptedSubKeys_ = java.util.Collections.unmodifiableList(encryptedSubKeys_);
           }
+          if (((mutable_bitField0_ & 0x00000008) == 0x00000008)) {
+            joined_ = java.util.Collections.unmodifiableList(joined_);
+          }
+          if (((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+            left_ = java.util.Collections.unmodifiableList(left_);
+          }
           this.unknownFields = unknownFields.build();
           makeExtensionsImmutable();
         }
@@ -1765,10 +1865,82 @@ public final class Message {
         return encryptedSubKeys_.get(index);
       }
 
+      // repeated int32 joined = 4;
+      public static final int JOINED_FIELD_NUMBER = 4;
+      private java.util.List<java.lang.Integer> joined_;
+      /**
+       * <code>repeated int32 joined = 4;</code>
+       *
+       * <pre>
+       * membership changes of this period decided by the coordinator, the same in all the messages for the period
+       * </pre>
+       */
+      public java.util.List<java.lang.Integer>
+          getJoinedList() {
+        return joined_;
+      }
+      /**
+       * <code>repeated int32 joined = 4;</code>
+       *
+       * <pre>
+       * membership changes of this period decided by the coordinator, the same in all the messages for the period
+       * </pre>
+       */
+      public int getJoinedCount() {
+        return joined_.size();
+      }
+      /**
+       * <code>repeated int32 joined = 4;</code>
+       *
+       * <pre>
+       * membership changes of this period decided by the coordinator, the same in all the messages for the period
+       * </pre>
+       */
+      public int getJoined(int index) {
+        return joined_.get(index);
+      }
+
+      // repeated int32 left = 5;
+      public static final int LEFT_FIELD_NUMBER = 5;
+      private java.util.List<java.lang.Integer> left_;
+      /**
+       * <code>repeated int32 left = 5;</code>
+       *
+       * <pre>
+       * IDs of the members excluded from this period
+       * </pre>
+       */
+      public java.util.List<java.lang.Integer>
+          getLeftList() {
+        return left_;
+      }
+      /**
+       * <code>repeated int32 left = 5;</code>
+       *
+       * <pre>
+       * IDs of the members excluded from this period
+       * </pre>
+       */
+      public int getLeftCount() {
+        return left_.size();
+      }
+      /**
+       * <code>repeated int32 left = 5;</code>
+       *
+       * <pre>
+       * IDs of the members excluded from this period
+       * </pre>
+       */
+      public int getLeft(int index) {
+        return left_.get(index);
+      }
+
       private void initFields() {
         period_ = 0;
         pubKeyR_ = com.google.protobuf.ByteString.EMPTY;
         encryptedSubKeys_ = java.util.Collections.emptyList();
+        joined_ = java.util.Collections.emptyList();
+        left_ = java.util.Collections.emptyList();
       }
       private byte memoizedIsInitialized = -1;
       public final boolean isInitialized() {
@@ -1805,6 +1977,12 @@ public final class Message {
         for (int i = 0; i < encryptedSubKeys_.size(); i++) {
           output.writeMessage(3, encryptedSubKeys_.get(i));
         }
+        for (int i = 0; i < joined_.size(); i++) {
+          output.writeInt32(4, joined_.get(i));
+        }
+        for (int i = 0; i < left_.size(); i++) {
+          output.writeInt32(5, left_.get(i));
+        }
         getUnknownFields().writeTo(output);
       }
 
@@ -1826,6 +2004,24 @@ public final class Message {
           size += com.google.protobuf.CodedOutputStream
             .computeMessageSize(3, encryptedSubKeys_.get(i));
         }
+        {
+          int dataSize = 0;
+          for (int i = 0; i < joined_.size(); i++) {
+            dataSize += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(joined_.get(i));
+          }
+          size += dataSize;
+          size += 1 * getJoinedList().size();
+        }
+        {
+          int dataSize = 0;
+          for (int i = 0; i < left_.size(); i++) {
+            dataSize += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(left_.get(i));
+          }
+          size += dataSize;
+          size += 1 * getLeftList().size();
+        }
         size += getUnknownFields().getSerializedSize();
         memoizedSerializedSize = size;
         return size;
@@ -1953,6 +2149,10 @@ public final class Message {
           } else {
             encryptedSubKeysBuilder_.clear();
           }
+          joined_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000008);
+          left_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000010);
           return this;
         }
 
@@ -1998,6 +2198,16 @@ public final class Message {
           } else {
             result.encryptedSubKeys_ = encryptedSubKeysBuilder_.build();
           }
+          if (((bitField0_ & 0x00000008) == 0x00000008)) {
+            joined_ = java.util.Collections.unmodifiableList(joined_);
+            bitField0_ = (bitField0_ & ~0x00000008);
+          }
+          result.joined_ = joined_;
+          if (((bitField0_ & 0x00000010) == 0x00000010)) {
+            left_ = java.util.Collections.unmodifiableList(left_);
+            bitField0_ = (bitField0_ & ~0x00000010);
+          }
+          result.left_ = left_;
           result.bitField0_ = to_bitField0_;
           onBuilt();
           return result;
@@ -2046,6 +2256,26 @@ public final class Message {
               }
             }
           }
+          if (!other.joined_.isEmpty()) {
+            if (joined_.isEmpty()) {
+              joined_ = other.joined_;
+              bitField0_ = (bitField0_ & ~0x00000008);
+            } else {
+              ensureJoinedIsMutable();
+              joined_.addAll(other.joined_);
+            }
+            onChanged();
+          }
+          if (!other.left_.isEmpty()) {
+            if (left_.isEmpty()) {
+              left_ = other.left_;
+              bitField0_ = (bitField0_ & ~0x00000010);
+            } else {
+              ensureLeftIsMutable();
+              left_.addAll(other.left_);
+            }
+            onChanged();
+          }
           this.mergeUnknownFields(other.getUnknownFields());
           return this;
         }
@@ -2412,6 +2642,194 @@ public final class Message {
           return encryptedSubKeysBuilder_;
         }
 
+        // repeated int32 joined = 4;
+        private java.util.List<java.lang.Integer> joined_ = java.util.Collections.emptyList();
+        private void ensureJoinedIsMutable() {
+          if (!((bitField0_ & 0x00000008) == 0x00000008)) {
+            joined_ = new java.util.ArrayList<java.lang.Integer>(joined_);
+            bitField0_ |= 0x00000008;
+           }
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public java.util.List<java.lang.Integer>
+            getJoinedList() {
+          return java.util.Collections.unmodifiableList(joined_);
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public int getJoinedCount() {
+          return joined_.size();
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public int getJoined(int index) {
+          return joined_.get(index);
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public Builder setJoined(
+            int index, int value) {
+          ensureJoinedIsMutable();
+          joined_.set(index, value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public Builder addJoined(int value) {
+          ensureJoinedIsMutable();
+          joined_.add(value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public Builder addAllJoined(
+            java.lang.Iterable<? extends java.lang.Integer> values) {
+          ensureJoinedIsMutable();
+          super.addAll(values, joined_);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 joined = 4;</code>
+         *
+         * <pre>
+         * membership changes of this period decided by the coordinator, the same in all the messages for the period
+         * </pre>
+         */
+        public Builder clearJoined() {
+          joined_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000008);
+          onChanged();
+          return this;
+        }
+
+        // repeated int32 left = 5;
+        private java.util.List<java.lang.Integer> left_ = java.util.Collections.emptyList();
+        private void ensureLeftIsMutable() {
+          if (!((bitField0_ & 0x00000010) == 0x00000010)) {
+            left_ = new java.util.ArrayList<java.lang.Integer>(left_);
+            bitField0_ |= 0x00000010;
+           }
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public java.util.List<java.lang.Integer>
+            getLeftList() {
+          return java.util.Collections.unmodifiableList(left_);
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public int getLeftCount() {
+          return left_.size();
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public int getLeft(int index) {
+          return left_.get(index);
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public Builder setLeft(
+            int index, int value) {
+          ensureLeftIsMutable();
+          left_.set(index, value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public Builder addLeft(int value) {
+          ensureLeftIsMutable();
+          left_.add(value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public Builder addAllLeft(
+            java.lang.Iterable<? extends java.lang.Integer> values) {
+          ensureLeftIsMutable();
+          super.addAll(values, left_);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 left = 5;</code>
+         *
+         * <pre>
+         * IDs of the members excluded from this period
+         * </pre>
+         */
+        public Builder clearLeft() {
+          left_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000010);
+          onChanged();
+          return this;
+        }
+
         // @@protoc_insertion_point(builder_scope:Msg.KeyAgreementPart2)
       }
 
@@ -4059,6 +4477,50 @@ public final class Message {
        * </pre>
        */
       int getPort();
+
+      // repeated int32 coJoiners = 3;
+      /**
+       * <code>repeated int32 coJoiners = 3;</code>
+       *
+       * <pre>
+       * IDs of the other new members added in the same period
+       * </pre>
+       */
+      java.util.List<java.lang.Integer> getCoJoinersList();
+      /**
+       * <code>repeated int32 coJoiners = 3;</code>
+       *
+       * <pre>
+       * IDs of the other new members added in the same period
+       * </pre>
+       */
+      int getCoJoinersCount();
+      /**
+       * <code>repeated int32 coJoiners = 3;</code>
+       *
+       * <pre>
+       * IDs of the other new members added in the same period
+       * </pre>
+       */
+      int getCoJoiners(int index);
+
+      // optional int32 period = 4;
+      /**
+       * <code>optional int32 period = 4;</code>
+       *
+       * <pre>
+       * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+       * </pre>
+       */
+      boolean hasPeriod();
+      /**
+       * <code>optional int32 period = 4;</code>
+       *
+       * <pre>
+       * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+       * </pre>
+       */
+      int getPeriod();
     }
     /**
      * Protobuf type {@code Msg.Joining}
@@ -4129,14 +4591,43 @@ public final class Message {
                 port_ = input.readInt32();
                 break;
               }
-            }
-          }
+              case 24: {
+                if (!((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+                  coJoiners_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000004;
+                }
+                coJoiners_.add(input.readInt32());
+                break;
+              }
+              case 26: {
+                int length = input.readRawVarint32();
+                int limit = input.pushLimit(length);
+                if (!((mutable_bitField0_ & 0x00000004) == 0x00000004) && input.getBytesUntilLimit() > 0) {
+                  coJoiners_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000004;
+                }
+                while (input.getBytesUntilLimit() > 0) {
+                  coJoiners_.add(input.readInt32());
+                }
+                input.popLimit(limit);
+                break;
+              }
+              case 32: {
+                bitField0_ |= 0x00000004;
+                period_ = input.readInt32();
+                break;
+              }
+            }
+          }
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
           throw e.setUnfinishedMessage(this);
         } catch (java.io.IOException e) {
           throw new com.google.protobuf.InvalidProtocolBufferException(
               e.getMessage()).setUnfinishedMessage(this);
         } finally {
+          if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+            coJoiners_ = java.util.Collections.unmodifiableList(coJoiners_);
+          }
           this.unknownFields = unknownFields.build();
           makeExtensionsImmutable();
         }
@@ -4215,9 +4706,70 @@ public final class Message {
         return port_;
       }
 
+      // repeated int32 coJoiners = 3;
+      public static final int COJOINERS_FIELD_NUMBER = 3;
+      private java.util.List<java.lang.Integer> coJoiners_;
+      /**
+       * <code>repeated int32 coJoiners = 3;</code>
+       *
+       * <pre>
+       * IDs of the other new members added in the same period
+       * </pre>
+       */
+      public java.util.List<java.lang.Integer>
+          getCoJoinersList() {
+        return coJoiners_;
+      }
+      /**
+       * <code>repeated int32 coJoiners = 3;</code>
+       *
+       * <pre>
+       * IDs of the other new members added in the same period
+       * </pre>
+       */
+      public int getCoJoinersCount() {
+        return coJoiners_.size();
+      }
+      /**
+       * <code>repeated int32 coJoiners = 3;</code>
+       *
+       * <pre>
+       * IDs of the other new members added in the same period
+       * </pre>
+       */
+      public int getCoJoiners(int index) {
+        return coJoiners_.get(index);
+      }
+
+      // optional int32 period = 4;
+      public static final int PERIOD_FIELD_NUMBER = 4;
+      private int period_;
+      /**
+       * <code>optional int32 period = 4;</code>
+       *
+       * <pre>
+       * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+       * </pre>
+       */
+      public boolean hasPeriod() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional int32 period = 4;</code>
+       *
+       * <pre>
+       * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+       * </pre>
+       */
+      public int getPeriod() {
+        return period_;
+      }
+
       private void initFields() {
         keyAgreementPart1_ = Message.Msg.KeyAgreementPart1.getDefaultInstance();
         port_ = 0;
+        coJoiners_ = java.util.Collections.emptyList();
+        period_ = 0;
       }
       private byte memoizedIsInitialized = -1;
       public final boolean isInitialized() {
@@ -4249,6 +4801,12 @@ public final class Message {
         if (((bitField0_ & 0x00000002) == 0x00000002)) {
           output.writeInt32(2, port_);
         }
+        for (int i = 0; i < coJoiners_.size(); i++) {
+          output.writeInt32(3, coJoiners_.get(i));
+        }
+        if (((bitField0_ & 0x00000004) == 0x00000004)) {
+          output.writeInt32(4, period_);
+        }
         getUnknownFields().writeTo(output);
       }
 
@@ -4266,6 +4824,19 @@ public final class Message {
           size += com.google.protobuf.CodedOutputStream
             .computeInt32Size(2, port_);
         }
+        {
+          int dataSize = 0;
+          for (int i = 0; i < coJoiners_.size(); i++) {
+            dataSize += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(coJoiners_.get(i));
+          }
+          size += dataSize;
+          size += 1 * getCoJoinersList().size();
+        }
+        if (((bitField0_ & 0x00000004) == 0x00000004)) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt32Size(4, period_);
+        }
         size += getUnknownFields().getSerializedSize();
         memoizedSerializedSize = size;
         return size;
@@ -4391,6 +4962,10 @@ public final class Message {
           bitField0_ = (bitField0_ & ~0x00000001);
           port_ = 0;
           bitField0_ = (bitField0_ & ~0x00000002);
+          coJoiners_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000004);
+          period_ = 0;
+          bitField0_ = (bitField0_ & ~0x00000008);
           return this;
         }
 
@@ -4431,6 +5006,15 @@ public final class Message {
             to_bitField0_ |= 0x00000002;
           }
           result.port_ = port_;
+          if (((bitField0_ & 0x00000004) == 0x00000004)) {
+            coJoiners_ = java.util.Collections.unmodifiableList(coJoiners_);
+            bitField0_ = (bitField0_ & ~0x00000004);
+          }
+          result.coJoiners_ = coJoiners_;
+          if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+            to_bitField0_ |= 0x00000004;
+          }
+          result.period_ = period_;
           result.bitField0_ = to_bitField0_;
           onBuilt();
           return result;
@@ -4453,6 +5037,19 @@ public final class Message {
           if (other.hasPort()) {
             setPort(other.getPort());
           }
+          if (!other.coJoiners_.isEmpty()) {
+            if (coJoiners_.isEmpty()) {
+              coJoiners_ = other.coJoiners_;
+              bitField0_ = (bitField0_ & ~0x00000004);
+            } else {
+              ensureCoJoinersIsMutable();
+              coJoiners_.addAll(other.coJoiners_);
+            }
+            onChanged();
+          }
+          if (other.hasPeriod()) {
+            setPeriod(other.getPeriod());
+          }
           this.mergeUnknownFields(other.getUnknownFields());
           return this;
         }
@@ -4658,6 +5255,149 @@ public final class Message {
           return this;
         }
 
+        // repeated int32 coJoiners = 3;
+        private java.util.List<java.lang.Integer> coJoiners_ = java.util.Collections.emptyList();
+        private void ensureCoJoinersIsMutable() {
+          if (!((bitField0_ & 0x00000004) == 0x00000004)) {
+            coJoiners_ = new java.util.ArrayList<java.lang.Integer>(coJoiners_);
+            bitField0_ |= 0x00000004;
+           }
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public java.util.List<java.lang.Integer>
+            getCoJoinersList() {
+          return java.util.Collections.unmodifiableList(coJoiners_);
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public int getCoJoinersCount() {
+          return coJoiners_.size();
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public int getCoJoiners(int index) {
+          return coJoiners_.get(index);
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public Builder setCoJoiners(
+            int index, int value) {
+          ensureCoJoinersIsMutable();
+          coJoiners_.set(index, value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public Builder addCoJoiners(int value) {
+          ensureCoJoinersIsMutable();
+          coJoiners_.add(value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public Builder addAllCoJoiners(
+            java.lang.Iterable<? extends java.lang.Integer> values) {
+          ensureCoJoinersIsMutable();
+          super.addAll(values, coJoiners_);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 coJoiners = 3;</code>
+         *
+         * <pre>
+         * IDs of the other new members added in the same period
+         * </pre>
+         */
+        public Builder clearCoJoiners() {
+          coJoiners_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000004);
+          onChanged();
+          return this;
+        }
+
+        // optional int32 period = 4;
+        private int period_ ;
+        /**
+         * <code>optional int32 period = 4;</code>
+         *
+         * <pre>
+         * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+         * </pre>
+         */
+        public boolean hasPeriod() {
+          return ((bitField0_ & 0x00000008) == 0x00000008);
+        }
+        /**
+         * <code>optional int32 period = 4;</code>
+         *
+         * <pre>
+         * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+         * </pre>
+         */
+        public int getPeriod() {
+          return period_;
+        }
+        /**
+         * <code>optional int32 period = 4;</code>
+         *
+         * <pre>
+         * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+         * </pre>
+         */
+        public Builder setPeriod(int value) {
+          bitField0_ |= 0x00000008;
+          period_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>optional int32 period = 4;</code>
+         *
+         * <pre>
+         * period in which the new member has been invited to join, nextPeriod of AddParticipant, the next period if missing
+         * </pre>
+         */
+        public Builder clearPeriod() {
+          bitField0_ = (bitField0_ & ~0x00000008);
+          period_ = 0;
+          onChanged();
+          return this;
+        }
+
         // @@protoc_insertion_point(builder_scope:Msg.Joining)
       }
 
@@ -4720,6 +5460,32 @@ public final class Message {
        */
       Message.Msg.AddParticipant.PublicDataOrBuilder getPublicDataOrBuilder(
           int index);
+
+      // repeated int32 coJoiners = 4;
+      /**
+       * <code>repeated int32 coJoiners = 4;</code>
+       *
+       * <pre>
+       * IDs of the other new participants invited together, listed also in init
+       * </pre>
+       */
+      java.util.List<java.lang.Integer> getCoJoinersList();
+      /**
+       * <code>repeated int32 coJoiners = 4;</code>
+       *
+       * <pre>
+       * IDs of the other new participants invited together, listed also in init
+       * </pre>
+       */
+      int getCoJoinersCount();
+      /**
+       * <code>repeated int32 coJoiners = 4;</code>
+       *
+       * <pre>
+       * IDs of the other new participants invited together, listed also in init
+       * </pre>
+       */
+      int getCoJoiners(int index);
     }
     /**
      * Protobuf type {@code Msg.AddParticipant}
@@ -4798,6 +5564,27 @@ public final class Message {
                 publicData_.add(input.readMessage(Message.Msg.AddParticipant.PublicData.PARSER, extensionRegistry));
                 break;
               }
+              case 32: {
+                if (!((mutable_bitField0_ & 0x00000008) == 0x00000008)) {
+                  coJoiners_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000008;
+                }
+                coJoiners_.add(input.readInt32());
+                break;
+              }
+              case 34: {
+                int length = input.readRawVarint32();
+                int limit = input.pushLimit(length);
+                if (!((mutable_bitField0_ & 0x00000008) == 0x00000008) && input.getBytesUntilLimit() > 0) {
+                  coJoiners_ = new java.util.ArrayList<java.lang.Integer>();
+                  mutable_bitField0_ |= 0x00000008;
+                }
+                while (input.getBytesUntilLimit() > 0) {
+                  coJoiners_.add(input.readInt32());
+                }
+                input.popLimit(limit);
+                break;
+              }
             }
           }
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -4809,6 +5596,9 @@ public final class Message {
           if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
             publicData_ = java.util.Collections.unmodifiableList(publicData_);
           }
+          if (((mutable_bitField0_ & 0x00000008) == 0x00000008)) {
+            coJoiners_ = java.util.Collections.unmodifiableList(coJoiners_);
+          }
           this.unknownFields = unknownFields.build();
           makeExtensionsImmutable();
         }
@@ -5561,10 +6351,46 @@ public final class Message {
         return publicData_.get(index);
       }
 
+      // repeated int32 coJoiners = 4;
+      public static final int COJOINERS_FIELD_NUMBER = 4;
+      private java.util.List<java.lang.Integer> coJoiners_;
+      /**
+       * <code>repeated int32 coJoiners = 4;</code>
+       *
+       * <pre>
+       * IDs of the other new participants invited together, listed also in init
+       * </pre>
+       */
+      public java.util.List<java.lang.Integer>
+          getCoJoinersList() {
+        return coJoiners_;
+      }
+      /**
+       * <code>repeated int32 coJoiners = 4;</code>
+       *
+       * <pre>
+       * IDs of the other new participants invited together, listed also in init
+       * </pre>
+       */
+      public int getCoJoinersCount() {
+        return coJoiners_.size();
+      }
+      /**
+       * <code>repeated int32 coJoiners = 4;</code>
+       *
+       * <pre>
+       * IDs of the other new participants invited together, listed also in init
+       * </pre>
+       */
+      public int getCoJoiners(int index) {
+        return coJoiners_.get(index);
+      }
+
       private void initFields() {
         nextPeriod_ = 0;
         init_ = Message.Msg.InitMsg.getDefaultInstance();
         publicData_ = java.util.Collections.emptyList();
+        coJoiners_ = java.util.Collections.emptyList();
       }
       private byte memoizedIsInitialized = -1;
       public final boolean isInitialized() {
@@ -5605,6 +6431,9 @@ public final class Message {
         for (int i = 0; i < publicData_.size(); i++) {
           output.writeMessage(3, publicData_.get(i));
         }
+        for (int i = 0; i < coJoiners_.size(); i++) {
+          output.writeInt32(4, coJoiners_.get(i));
+        }
         getUnknownFields().writeTo(output);
       }
 
@@ -5626,6 +6455,15 @@ public final class Message {
           size += com.google.protobuf.CodedOutputStream
             .computeMessageSize(3, publicData_.get(i));
         }
+        {
+          int dataSize = 0;
+          for (int i = 0; i < coJoiners_.size(); i++) {
+            dataSize += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(coJoiners_.get(i));
+          }
+          size += dataSize;
+          size += 1 * getCoJoinersList().size();
+        }
         size += getUnknownFields().getSerializedSize();
         memoizedSerializedSize = size;
         return size;
@@ -5758,6 +6596,8 @@ public final class Message {
           } else {
             publicDataBuilder_.clear();
           }
+          coJoiners_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000008);
           return this;
         }
 
@@ -5807,6 +6647,11 @@ public final class Message {
           } else {
             result.publicData_ = publicDataBuilder_.build();
           }
+          if (((bitField0_ & 0x00000008) == 0x00000008)) {
+            coJoiners_ = java.util.Collections.unmodifiableList(coJoiners_);
+            bitField0_ = (bitField0_ & ~0x00000008);
+          }
+          result.coJoiners_ = coJoiners_;
           result.bitField0_ = to_bitField0_;
           onBuilt();
           return result;
@@ -5855,6 +6700,16 @@ public final class Message {
               }
             }
           }
+          if (!other.coJoiners_.isEmpty()) {
+            if (coJoiners_.isEmpty()) {
+              coJoiners_ = other.coJoiners_;
+              bitField0_ = (bitField0_ & ~0x00000008);
+            } else {
+              ensureCoJoinersIsMutable();
+              coJoiners_.addAll(other.coJoiners_);
+            }
+            onChanged();
+          }
           this.mergeUnknownFields(other.getUnknownFields());
           return this;
         }
@@ -6290,6 +7145,100 @@ public final class Message {
           return publicDataBuilder_;
         }
 
+        // repeated int32 coJoiners = 4;
+        private java.util.List<java.lang.Integer> coJoiners_ = java.util.Collections.emptyList();
+        private void ensureCoJoinersIsMutable() {
+          if (!((bitField0_ & 0x00000008) == 0x00000008)) {
+            coJoiners_ = new java.util.ArrayList<java.lang.Integer>(coJoiners_);
+            bitField0_ |= 0x00000008;
+           }
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public java.util.List<java.lang.Integer>
+            getCoJoinersList() {
+          return java.util.Collections.unmodifiableList(coJoiners_);
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public int getCoJoinersCount() {
+          return coJoiners_.size();
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public int getCoJoiners(int index) {
+          return coJoiners_.get(index);
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public Builder setCoJoiners(
+            int index, int value) {
+          ensureCoJoinersIsMutable();
+          coJoiners_.set(index, value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public Builder addCoJoiners(int value) {
+          ensureCoJoinersIsMutable();
+          coJoiners_.add(value);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public Builder addAllCoJoiners(
+            java.lang.Iterable<? extends java.lang.Integer> values) {
+          ensureCoJoinersIsMutable();
+          super.addAll(values, coJoiners_);
+          onChanged();
+          return this;
+        }
+        /**
+         * <code>repeated int32 coJoiners = 4;</code>
+         *
+         * <pre>
+         * IDs of the other new participants invited together, listed also in init
+         * </pre>
+         */
+        public Builder clearCoJoiners() {
+          coJoiners_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000008);
+          onChanged();
+          return this;
+        }
+
         // @@protoc_insertion_point(builder_scope:Msg.AddParticipant)
       }
 
@@ -7613,7 +8562,7 @@ public final class Message {
       descriptor;
   static {
     java.lang.String[] descriptorData = {
-      "\n\rmessage.proto\"\327\007\n\003Msg\022\020\n\010senderId\030\001 \002(" +
+      "\n\rmessage.proto\"\253\010\n\003Msg\022\020\n\010senderId\030\001 \002(" +
       "\005\022\027\n\004type\030\002 \002(\0162\t.Msg.Type\0221\n\021keyAgreeme" +
       "ntPart1\030\003 \001(\0132\026.Msg.KeyAgreementPart1\0221\n" +
       "\021keyAgreementPart2\030\004 \001(\0132\026.Msg.KeyAgreem" +
@@ -7621,24 +8570,26 @@ public final class Message {
       "joining\030\006 \001(\0132\014.Msg.Joining\022+\n\016addPartic" +
       "ipant\030\007 \001(\0132\023.Msg.AddParticipant\032;\n\021KeyA" +
       "greementPart1\022\017\n\007pubKeyY\030\001 \002(\014\022\025\n\rpubPol" +
-      "ynomial\030\002 \003(\014\032\245\001\n\021KeyAgreementPart2\022\016\n\006p" +
+      "ynomial\030\002 \003(\014\032\303\001\n\021KeyAgreementPart2\022\016\n\006p" +
       "eriod\030\001 \002(\005\022\017\n\007pubKeyR\030\002 \002(\014\022@\n\020encrypte",
       "dSubKeys\030\003 \003(\0132&.Msg.KeyAgreementPart2.E" +
-      "ncryptedSubKey\032-\n\017EncryptedSubKey\022\n\n\002id\030" +
-      "\001 \002(\005\022\016\n\006subKey\030\002 \002(\014\032|\n\007InitMsg\022\t\n\001p\030\001 " +
-      "\002(\014\022\t\n\001q\030\002 \002(\014\022\t\n\001g\030\003 \002(\014\022)\n\tidAndPort\030\004" +
-      " \003(\0132\026.Msg.InitMsg.IdAndPort\032%\n\tIdAndPor" +
-      "t\022\n\n\002id\030\001 \002(\005\022\014\n\004port\030\002 \002(\005\032J\n\007Joining\0221" +
-      "\n\021keyAgreementPart1\030\001 \002(\0132\026.Msg.KeyAgree" +
-      "mentPart1\022\014\n\004port\030\002 \002(\005\032\266\001\n\016AddParticipa" +
-      "nt\022\022\n\nnextPeriod\030\001 \002(\005\022\032\n\004init\030\002 \002(\0132\014.M" +
-      "sg.InitMsg\0222\n\npublicData\030\003 \003(\0132\036.Msg.Add",
-      "Participant.PublicData\032@\n\nPublicData\022\n\n\002" +
-      "id\030\001 \002(\005\022\017\n\007pubKeyY\030\002 \002(\014\022\025\n\rpubPolynomi" +
-      "al\030\003 \003(\014\"o\n\004Type\022\025\n\021KEYAGREEMENTPART1\020\001\022" +
-      "\025\n\021KEYAGREEMENTPART2\020\002\022\013\n\007INITMSG\020\003\022\022\n\016A" +
-      "DDPARTICIPANT\020\004\022\013\n\007JOINING\020\005\022\013\n\007LEAVING\020" +
-      "\006"
+      "ncryptedSubKey\022\016\n\006joined\030\004 \003(\005\022\014\n\004left\030\005" +
+      " \003(\005\032-\n\017EncryptedSubKey\022\n\n\002id\030\001 \002(\005\022\016\n\006s" +
+      "ubKey\030\002 \002(\014\032|\n\007InitMsg\022\t\n\001p\030\001 \002(\014\022\t\n\001q\030\002" +
+      " \002(\014\022\t\n\001g\030\003 \002(\014\022)\n\tidAndPort\030\004 \003(\0132\026.Msg" +
+      ".InitMsg.IdAndPort\032%\n\tIdAndPort\022\n\n\002id\030\001 " +
+      "\002(\005\022\014\n\004port\030\002 \002(\005\032m\n\007Joining\0221\n\021keyAgree" +
+      "mentPart1\030\001 \002(\0132\026.Msg.KeyAgreementPart1\022" +
+      "\014\n\004port\030\002 \002(\005\022\021\n\tcoJoiners\030\003 \003(\005\022\016\n\006peri" +
+      "od\030\004 \001(\005\032\311\001\n\016AddParticipant\022\022\n\nnextPerio",
+      "d\030\001 \002(\005\022\032\n\004init\030\002 \002(\0132\014.Msg.InitMsg\0222\n\np" +
+      "ublicData\030\003 \003(\0132\036.Msg.AddParticipant.Pub" +
+      "licData\022\021\n\tcoJoiners\030\004 \003(\005\032@\n\nPublicData" +
+      "\022\n\n\002id\030\001 \002(\005\022\017\n\007pubKeyY\030\002 \002(\014\022\025\n\rpubPoly" +
+      "nomial\030\003 \003(\014\"o\n\004Type\022\025\n\021KEYAGREEMENTPART" +
+      "1\020\001\022\025\n\021KEYAGREEMENTPART2\020\002\022\013\n\007INITMSG\020\003\022" +
+      "\022\n\016ADDPARTICIPANT\020\004\022\013\n\007JOINING\020\005\022\013\n\007LEAV" +
+      "ING\020\006"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -7662,7 +8613,7 @@ public final class Message {
           internal_static_Msg_KeyAgreementPart2_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_Msg_KeyAgreementPart2_descriptor,
-              new java.lang.String[] { "Period", "PubKeyR", "EncryptedSubKeys", });
+              new java.lang.String[] { "Period", "PubKeyR", "EncryptedSubKeys", "Joined", "Left", });
           internal_static_Msg_KeyAgreementPart2_EncryptedSubKey_descriptor =
             internal_static_Msg_KeyAgreementPart2_descriptor.getNestedTypes().get(0);
           internal_static_Msg_KeyAgreementPart2_EncryptedSubKey_fieldAccessorTable = new
@@ -7686,13 +8637,13 @@ public final class Message {
           internal_static_Msg_Joining_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_Msg_Joining_descriptor,
-              new java.lang.String[] { "KeyAgreementPart1", "Port", });
+              new java.lang.String[] { "KeyAgreementPart1", "Port", "CoJoiners", "Period", });
           internal_static_Msg_AddParticipant_descriptor =
             internal_static_Msg_descriptor.getNestedTypes().get(4);
           internal_static_Msg_AddParticipant_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_Msg_AddParticipant_descriptor,
-              new java.lang.String[] { "NextPeriod", "Init", "PublicData", });
+              new java.lang.String[] { "NextPeriod", "Init", "PublicData", "CoJoiners", });
           internal_static_Msg_AddParticipant_PublicData_descriptor =
             internal_static_Msg_AddParticipant_descriptor.getNestedTypes().get(0);
           internal_static_Msg_AddParticipant_PublicData_fieldAccessorTable = new
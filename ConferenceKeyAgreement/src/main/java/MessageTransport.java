@@ -0,0 +1,83 @@
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * @author Zuzana Melsova
+ * Communication layer used by the state engine to exchange protocol messages with the other participants.
+ * Received messages are passed to the registered MessageListener.
+ */
+public interface MessageTransport {
+
+    /**
+     * Sends given message to all the other participants.
+     * @param msg
+     * @return IDs of participants to whom the message has been sent, available when all the sending is finished
+     */
+    public Future<Set<Integer>> sendMsgToEveryone(Message.Msg msg);
+
+    /**
+     * Sends the message to the participant with given id.
+     * @param msg
+     * @param id - receiver's id
+     */
+    public void sendMsgTo(Message.Msg msg, Integer id);
+
+    /**
+     * Sends the message to a participant to whom messages are not sent to everyone, e.g. a new participant
+     * who has not joined yet.
+     * @param msg
+     * @param id - receiver's id
+     * @param port - receiver's port
+     */
+    public void sendMsgTo(Message.Msg msg, Integer id, int port);
+
+    /**
+     * Enables sending of messages to different participants concurrently.
+     * @param threads - maximal number of messages being sent at the same time, 0 to send messages sequentially
+     * @param timeout - time in milliseconds after which sending of a message to one participant is abandoned
+     */
+    public void setConcurrentSending(int threads, long timeout);
+
+    /**
+     * Closes the connection to the participant with given id.
+     * @param id
+     */
+    public void closeConnection(Integer id);
+
+    /**
+     * Closes connections to all the participants.
+     */
+    public void closeConnections();
+
+    /**
+     * Stops listening to incoming messages.
+     */
+    public void stop();
+
+    public MessageListener getMessageListener();
+
+    public void setMessageListener(MessageListener messageListener);
+
+    public void setPorts(Map<Integer, Integer> ports);
+
+    /**
+     * Adds a participant to whom messages are sent to everyone, or changes his port.
+     * @param id
+     * @param port
+     */
+    public void addPort(int id, int port);
+
+    /**
+     * Removes a participant to whom messages are sent to everyone.
+     * @param id
+     */
+    public void removePort(int id);
+
+    /**
+     * @return ports associated with participants IDs, the map cannot be modified
+     */
+    public Map<Integer, Integer> getPorts();
+
+    public int getMyPort();
+}
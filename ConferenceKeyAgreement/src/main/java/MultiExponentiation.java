@@ -0,0 +1,79 @@
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * @author Zuzana Melsova
+ * Simultaneous multi-exponentiation (Straus' method).
+ *
+ * A product of powers b_0^e_0 * b_1^e_1 * ... mod m is computed in one pass over the bits of the exponents:
+ * the squarings are shared by all the bases and each base contributes one multiplication per window
+ * of w bits using a small table of its powers b^1 .. b^(2^w - 1).
+ */
+public final class MultiExponentiation {
+
+    private MultiExponentiation() {
+    }
+
+    /**
+     * @param bases
+     * @param exponents - non-negative exponents, one for each base
+     * @param reduction - multiplication modulo m
+     * @return product of bases.get(i)^exponents.get(i) mod m
+     */
+    public static BigInteger product(List<BigInteger> bases, List<BigInteger> exponents, BarrettReduction reduction) {
+        BigInteger modulus = reduction.getModulus();
+        int size = bases.size();
+        int maxBits = 0;
+        for (BigInteger exponent : exponents) {
+            maxBits = Math.max(maxBits, exponent.bitLength());
+        }
+        int window = window(maxBits);
+        int digits = 1 << window;
+
+        // Powers b^1 .. b^(2^w - 1) of each base
+        BigInteger[][] powers = new BigInteger[size][digits];
+        byte[][] magnitudes = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            BigInteger base = bases.get(i);
+            if (base.signum() < 0 || base.compareTo(modulus) >= 0) {
+                base = base.mod(modulus);
+            }
+            powers[i][1] = base;
+            for (int d = 2; d < digits; d++) {
+                powers[i][d] = reduction.multiply(powers[i][d - 1], base);
+            }
+            magnitudes[i] = exponents.get(i).toByteArray();
+        }
+
+        BigInteger result = BigInteger.ONE.mod(modulus);
+        for (int from = ((maxBits + window - 1) / window - 1) * window; from >= 0; from -= window) {
+            for (int s = 0; s < window && !result.equals(BigInteger.ONE); s++) {
+                result = reduction.multiply(result, result);
+            }
+            for (int i = 0; i < size; i++) {
+                int digit = FixedBaseExponentiation.digit(magnitudes[i], from, window);
+                if (digit != 0) {
+                    result = reduction.multiply(result, powers[i][digit]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param bits - maximal bit length of the exponents
+     * @return number of bits in one window balancing the size of the tables and the number of multiplications
+     */
+    private static int window(int bits) {
+        if (bits < 8) {
+            return 1;
+        } else if (bits < 24) {
+            return 2;
+        } else if (bits < 80) {
+            return 3;
+        } else if (bits < 240) {
+            return 4;
+        }
+        return 5;
+    }
+}
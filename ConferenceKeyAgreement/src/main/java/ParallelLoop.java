@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author Zuzana Melsova
+ * Runs independent iterations of a loop on several threads.
+ * The indices are split into contiguous ranges, one for each thread; the calling thread processes
+ * the last range itself and then waits for the others. Each iteration should write only its own
+ * slot of a pre-sized result array, so no further synchronization is needed.
+ */
+public class ParallelLoop {
+
+    /**
+     * Body of the loop.
+     */
+    public interface Body {
+        void run(int index);
+    }
+
+    private final int threads;
+    private final ExecutorService workers;
+
+    /**
+     * @param threads - number of threads including the calling one
+     */
+    public ParallelLoop(int threads) {
+        this.threads = threads;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads - 1), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "key-computation");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Runs body for all indices from 0 to size - 1 and waits until all of them are finished.
+     * @param size
+     * @param body
+     */
+    public void run(int size, final Body body) {
+        int parts = Math.min(threads, size);
+        if (parts <= 1) {
+            runRange(body, 0, size);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>(parts - 1);
+        for (int part = 0; part < parts - 1; part++) {
+            final int from = (int) ((long) size * part / parts);
+            final int to = (int) ((long) size * (part + 1) / parts);
+            futures.add(workers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    runRange(body, from, to);
+                }
+            }));
+        }
+        runRange(body, (int) ((long) size * (parts - 1) / parts), size);
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel computation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void runRange(Body body, int from, int to) {
+        for (int index = from; index < to; index++) {
+            body.run(index);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -1,8 +1,7 @@
 import java.math.BigInteger;
+import java.security.SecureRandom;
 import java.util.*;
-
-import static java.math.BigInteger.ONE;
-import static java.math.BigInteger.probablePrime;
+import java.util.concurrent.Callable;
 
 /**
  * @author Zuzana Melsova
@@ -21,6 +20,18 @@ public class ParticipantData {
     // Generator with order q in finite field GF(p).
     private BigInteger g;
 
+    // True if g^q = 1 for the current group parameters, null until checked.
+    private Boolean generatorInSubgroup;
+
+    // Source of the group parameters.
+    private GroupParametersProvider groupParametersProvider = new GroupParametersProvider();
+
+    // Precomputed powers of the generator g, built once for the group parameters.
+    private volatile FixedBaseExponentiation generatorPowers;
+
+    // Multiplication modulo p, also used by the threads verifying sub-keys.
+    private volatile BarrettReduction reduction;
+
     // Total number of periods.
     private int numOfPeriods;
 
@@ -37,6 +48,15 @@ public class ParticipantData {
     // Polynomial evaluated at a value z, where z is current period.
     private BigInteger subKey;
 
+    // Number of bits by which an intermediate value of Horner`s method may exceed q before it is reduced.
+    private static final int REDUCTION_SLACK = 256;
+
+    // If true, sub-keys for all the periods are computed together with the secret polynomial.
+    private boolean precomputeSubKeys;
+
+    // Sub-keys f(z) indexed by period z = 1..t, null if they are not precomputed.
+    private BigInteger[] subKeySchedule;
+
     // List of values of the form g^c, where c is a coefficient of the secret polynomial.
     private List<BigInteger> publicPolynomial;
 
@@ -45,50 +65,228 @@ public class ParticipantData {
     private BigInteger privateKeyK;
     private BigInteger publicKeyR;
 
+    // Keys k, r generated in advance while waiting for a new period, null if they are generated when needed.
+    private EphemeralKeyPool ephemeralKeys;
+
+    // If true, each sub-key is decrypted and verified as soon as keyAgreementPart2 message arrives.
+    private boolean eagerDecryption;
+
+    // Sum of the sub-keys decrypted eagerly in period eagerSumPeriod.
+    private BigInteger eagerSum = BigInteger.ZERO;
+    private int eagerSumPeriod;
+
+    // Threads computing exponentiations for all the participants, null if they are computed sequentially.
+    private ParallelLoop parallelLoop;
+
     // Encrypted sub-keys s_i for each participant i of the form s_i = f(z) * (y_i)^(q-k), where f(z) is sub-key for period z.
-    private Map<Integer, BigInteger> encryptedSubKeys;
+    private IntObjectHashMap<BigInteger> encryptedSubKeys;
 
     // Decrypted sub-keys from all participants.
-    private Map<Integer, BigInteger> decryptedSubKeys;
+    private IntObjectHashMap<BigInteger> decryptedSubKeys;
 
     // List of all the other participants with information from them needed to compute the group key.
-    private Map<Integer, PublicData> participants;
+    private IntObjectHashMap<PublicData> participants;
+
+    // Participants from whom keyAgreementPart1 message has not been received yet.
+    private final IntHashSet part1Outstanding = new IntHashSet();
+
+    // Participants from whom keyAgreementPart2 message for the current period has not been received yet.
+    private final IntHashSet part2Outstanding = new IntHashSet();
 
     //Conference key established by all the participants
     private BigInteger conferenceKey;
 
+    // Number of bits of random exponents combining the equations in batch verification.
+    private static final int BATCH_EXPONENT_BITS = 64;
+
+    // If true, sub-keys of all participants are verified by one combined equation.
+    private boolean batchVerification;
+
+    // Source of random exponents for batch verification, must not be predictable by the other participants.
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // Id of the participant whose sub-key failed the last verification, null if all sub-keys were valid
+    // or the generator g itself is not in the subgroup of order q.
+    private Integer invalidParticipant;
+
+    // By default the public polynomials are evaluated without precomputed powers.
+    public static final int DEFAULT_POLYNOMIAL_TABLE_LIMIT = 0;
+
+    // Limit which lets the tables cover a few tens of periods. Every precomputed power is a number of the size of p,
+    // so the tables of one participant take up to 0.75 MB with 1024-bit p and 1.3 MB with 2048-bit p,
+    // multiplied by the number of participants, e.g. 400 MB for 300 participants with 2048-bit p.
+    // A new participant builds the tables of all the members when he joins.
+    public static final int RECOMMENDED_POLYNOMIAL_TABLE_LIMIT = 1 << 12;
+
+    // Maximal number of precomputed powers of the public polynomial of one participant, 0 disables the tables.
+    private int polynomialTableLimit = DEFAULT_POLYNOMIAL_TABLE_LIMIT;
+
 
     public ParticipantData(int id) {
         this.id = id;
-        participants = new HashMap<Integer, PublicData>();
+        participants = new IntObjectHashMap<PublicData>();
     }
 
     public void updatePeriod() {
         currentPeriod++;
+        resetPart2Outstanding();
+    }
+
+    /**
+     * Adds a participant, or replaces his data, and keeps track of the messages still expected from him.
+     * @param id
+     * @param data
+     */
+    public void addParticipant(int id, PublicData data) {
+        participants.put(id, data);
+        if (data.isPart1received()) {
+            part1Outstanding.remove(id);
+        } else {
+            part1Outstanding.add(id);
+        }
+        if (data.hasPart2(currentPeriod)) {
+            part2Outstanding.remove(id);
+        } else {
+            part2Outstanding.add(id);
+        }
+    }
+
+    /**
+     * Removes a participant who has left the group.
+     * @param id
+     */
+    public void removeParticipant(int id) {
+        participants.remove(id);
+        part1Outstanding.remove(id);
+        part2Outstanding.remove(id);
+    }
+
+    /**
+     * Removes all the participants.
+     */
+    public void clearParticipants() {
+        participants.clear();
+        part1Outstanding.clear();
+        part2Outstanding.clear();
+    }
+
+    /**
+     * Marks keyAgreementPart1 message from given participant as received.
+     * @param id
+     */
+    public void part1Received(int id) {
+        participants.get(id).setPart1received(true);
+        part1Outstanding.remove(id);
+    }
+
+    /**
+     * Saves data from keyAgreementPart2 message for given period from given participant and marks it as received.
+     * Messages for a later period are kept separately from the current one and taken into account
+     * when the period starts. Only periods from the current one to PART2_BUFFER_SIZE - 1 periods ahead are kept,
+     * a message for a period further ahead would take the place of the current period.
+     * @param id
+     * @param period
+     * @param publicKeyR
+     * @param encryptedSubKey - sub-key encrypted for this participant, null if the message contains none,
+     * which makes the verification of the sender's sub-key fail
+     * @return false if the sender is unknown or the period is not kept, the message has been ignored
+     */
+    public boolean part2Received(int id, int period, BigInteger publicKeyR, BigInteger encryptedSubKey) {
+        PublicData data = participants.get(id);
+        if (data == null || period < currentPeriod || period >= currentPeriod + PublicData.PART2_BUFFER_SIZE
+                || !data.savePart2(period, publicKeyR, encryptedSubKey)) {
+            return false;
+        }
+        if (period == currentPeriod) {
+            part2Outstanding.remove(id);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if keyAgreementPart1 messages have been received from all the participants
+     */
+    public boolean isPart1Complete() {
+        return part1Outstanding.isEmpty();
+    }
+
+    /**
+     * @return true if keyAgreementPart2 messages for the current period have been received from all the participants
+     */
+    public boolean isPart2Complete() {
+        return part2Outstanding.isEmpty();
+    }
+
+    /**
+     * Collects participants whose keyAgreementPart2 message for the new current period has not arrived in advance.
+     */
+    private void resetPart2Outstanding() {
+        part2Outstanding.clear();
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+            if (!participants.valueAt(slot).hasPart2(currentPeriod)) {
+                part2Outstanding.add(participants.keyAt(slot));
+            }
+        }
     }
 
     /**
-     * Generates parameters p,q,g of the group for which Decisional Diffie-Hellman problem is assumed to be hard.
+     * Sets parameters p,q,g of the group for which Decisional Diffie-Hellman problem is assumed to be hard,
+     * as given by the group parameters provider.
      */
     public void generateGroupParameters() {
-        Random rnd = new Random();
-        q = probablePrime(1024, rnd);
-        BigInteger r = new BigInteger(2, rnd);
-        do {
-            r = r.add(ONE);
-            p = q.multiply(r).add(ONE);
-        } while (!(p.isProbablePrime(5)));
+        GroupParameters parameters = groupParametersProvider.getParameters();
+        p = parameters.getP();
+        q = parameters.getQ();
+        g = parameters.getG();
+        generatorInSubgroup = null;
+    }
 
-        do {
-            BigInteger h = randomBigInt();
-            g = h.modPow((p.subtract(ONE)).divide(q), p);
-        } while (!(g.modPow(q, p)).equals(ONE));
+    /**
+     * Computes g^exponent mod p using precomputed powers of the generator g.
+     * The table is built on first use and again whenever the group parameters change.
+     * @param exponent
+     * @return g^exponent mod p
+     */
+    public BigInteger powG(BigInteger exponent) {
+        return getGeneratorPowers().pow(exponent);
+    }
+
+    /**
+     * @return precomputed powers of the generator g for the current group parameters
+     */
+    private FixedBaseExponentiation getGeneratorPowers() {
+        FixedBaseExponentiation powers = generatorPowers;
+        if (powers == null || !powers.matches(g, p)) {
+            powers = new FixedBaseExponentiation(g, p, q.bitLength());
+            generatorPowers = powers;
+        }
+        return powers;
+    }
+
+    /**
+     * @return multiplication modulo p, created again whenever p changes
+     */
+    private BarrettReduction getReduction() {
+        BarrettReduction current = reduction;
+        if (current == null || !current.getModulus().equals(p)) {
+            current = new BarrettReduction(p);
+            reduction = current;
+        }
+        return current;
     }
 
     /**
      * @return random integer x from Z_q^*
      */
     public static BigInteger randomBigInt() {
+        return randomBigInt(q);
+    }
+
+    /**
+     * @param q
+     * @return random integer x from Z_q^*
+     */
+    private static BigInteger randomBigInt(BigInteger q) {
         Random rnd = new Random();
         do {
             BigInteger i = new BigInteger(q.bitLength(), rnd);
@@ -102,7 +300,7 @@ public class ParticipantData {
      */
     public void generatePublicKeyY() {
         privateKeyX = randomBigInt();
-        publicKeyY = g.modPow(privateKeyX, p);
+        publicKeyY = powG(privateKeyX);
     }
 
     /**
@@ -116,73 +314,516 @@ public class ParticipantData {
         }
         publicPolynomial = new ArrayList<BigInteger>();
         for (int i = 0; i <= numOfPeriods; i++) {
-            publicPolynomial.add(i, g.modPow(secretPolynomial.get(i), p));
+            publicPolynomial.add(i, powG(secretPolynomial.get(i)));
+        }
+        subKeySchedule = null;
+        if (precomputeSubKeys) {
+            computeSubKeySchedule();
         }
     }
 
+    /**
+     * Evaluates the secret polynomial at all the periods 1..t at once,
+     * so that no polynomial evaluation is needed when the re-keying phase starts.
+     */
+    private void computeSubKeySchedule() {
+        BigInteger[] schedule = new BigInteger[numOfPeriods + 1];
+        for (int z = 1; z <= numOfPeriods; z++) {
+            schedule[z] = evaluatePolynomial(secretPolynomial, z, q);
+        }
+        subKeySchedule = schedule;
+    }
+
     /**
      * Uses Horner`s method to evaluate the polynomial f(z), where z is current period.
+     * If the sub-keys have been precomputed, f(z) is only looked up.
      */
     public void evaluateSecretPolynomial() {
-        subKey = new BigInteger(String.valueOf(secretPolynomial.get(numOfPeriods)));
-        for (int j = numOfPeriods - 1; j >= 0; j--) {
-            subKey = ((new BigInteger(String.valueOf(currentPeriod)).multiply(subKey)).add(secretPolynomial.get(j))).mod(q);
+        if (subKeySchedule != null && currentPeriod >= 1 && currentPeriod < subKeySchedule.length) {
+            subKey = subKeySchedule[currentPeriod];
+            return;
+        }
+        subKey = evaluatePolynomial(secretPolynomial, currentPeriod, q);
+    }
+
+    /**
+     * Evaluates the polynomial at a small point by Horner`s method.
+     * Multiplying by a small number adds only a few bits, so the intermediate value is reduced modulo q
+     * only when it exceeds q by more than REDUCTION_SLACK bits, and once at the end.
+     * @param coefficients - coefficients c_0, ..., c_t of the polynomial c_0 + c_1 * z + ... + c_t * z^t
+     * @param z - point, e.g. a period
+     * @param q - modulus
+     * @return value of the polynomial at z modulo q
+     */
+    public static BigInteger evaluatePolynomial(List<BigInteger> coefficients, int z, BigInteger q) {
+        BigInteger point = BigInteger.valueOf(z);
+        int limit = q.bitLength() + REDUCTION_SLACK;
+        BigInteger value = coefficients.get(coefficients.size() - 1);
+        for (int j = coefficients.size() - 2; j >= 0; j--) {
+            value = value.multiply(point).add(coefficients.get(j));
+            if (value.bitLength() > limit) {
+                value = value.mod(q);
+            }
         }
+        return value.mod(q);
     }
 
     /**
      * Encrypts the sub-key for each participant with his public key according to the Re-keying phase of the protocol.
      */
     public void encryptSubKeys() {
-        privateKeyK = randomBigInt();
-        publicKeyR = g.modPow(privateKeyK, p);
-        BigInteger exponent = q.subtract(privateKeyK);
-        encryptedSubKeys = new HashMap<Integer, BigInteger>();
+        EphemeralKeyPool.Key key = ephemeralKeys == null ? null : ephemeralKeys.poll(p, g);
+        if (key == null) {
+            key = generateEphemeralKey();
+        }
+        privateKeyK = key.getPrivateKeyK();
+        publicKeyR = key.getPublicKeyR();
+        final BigInteger exponent = key.getExponent();
+        final BigInteger reducedSubKey = subKey.mod(p);
+        final BarrettReduction reduction = getReduction();
+
+        // The exponentiations are independent, each of them writes only its own slot of the result.
+        final int[] ids = new int[participants.size()];
+        final PublicData[] data = new PublicData[ids.length];
+        snapshotParticipants(ids, data);
+        final BigInteger[] encrypted = new BigInteger[ids.length];
+        forEachParticipant(ids.length, new ParallelLoop.Body() {
+            @Override
+            public void run(int index) {
+                encrypted[index] = reduction.multiply(reducedSubKey, data[index].getPublicKeyY().modPow(exponent, p));
+            }
+        });
+
+        encryptedSubKeys = new IntObjectHashMap<BigInteger>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            encryptedSubKeys.put(ids[i], encrypted[i]);
+        }
+    }
+
+    /**
+     * Copies ids and data of all the participants into arrays in the same order.
+     * @param ids - array of the size of participants
+     * @param data - array of the size of participants
+     */
+    private void snapshotParticipants(int[] ids, PublicData[] data) {
+        int i = 0;
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+            ids[i] = participants.keyAt(slot);
+            data[i] = participants.valueAt(slot);
+            i++;
+        }
+    }
+
+    /**
+     * Runs the body for participants with indices from 0 to size - 1, on several threads if enabled.
+     * @param size
+     * @param body
+     */
+    private void forEachParticipant(int size, ParallelLoop.Body body) {
+        ParallelLoop loop = parallelLoop;
+        if (loop == null) {
+            for (int index = 0; index < size; index++) {
+                body.run(index);
+            }
+        } else {
+            loop.run(size, body);
+        }
+    }
+
+    /**
+     * Sets the number of threads computing exponentiations for all the participants.
+     * @param threads - number of threads, 1 or less to compute on the calling thread only
+     */
+    public void setComputationThreads(int threads) {
+        if (parallelLoop != null) {
+            parallelLoop.shutdown();
+        }
+        parallelLoop = threads > 1 ? new ParallelLoop(threads) : null;
+    }
+
+    public int getComputationThreads() {
+        return parallelLoop == null ? 1 : parallelLoop.getThreads();
+    }
+
+    /**
+     * Generates private key k and computes public key r = g^k mod p and exponent q - k.
+     * @return the new key
+     */
+    private EphemeralKeyPool.Key generateEphemeralKey() {
+        return generateEphemeralKey(p, q, g, getGeneratorPowers());
+    }
 
-        for (Map.Entry<Integer, PublicData> entry : participants.entrySet()) {
-            encryptedSubKeys.put(entry.getKey(), ((subKey.mod(p)).multiply(entry.getValue().getPublicKeyY().modPow(exponent, p))).mod(p));
+    /**
+     * Generates the key in the group given by the parameters, does not read any fields, so that it may run
+     * on another thread while the group parameters are changed.
+     * @param p
+     * @param q
+     * @param g
+     * @param generatorPowers - precomputed powers of g
+     * @return the new key
+     */
+    private static EphemeralKeyPool.Key generateEphemeralKey(BigInteger p, BigInteger q, BigInteger g,
+                                                             FixedBaseExponentiation generatorPowers) {
+        BigInteger k = randomBigInt(q);
+        return new EphemeralKeyPool.Key(p, g, k, generatorPowers.pow(k), q.subtract(k));
+    }
+
+    /**
+     * Starts generating keys k, r for the following periods in background, if enabled.
+     * Called when the participant waits for a new period. The background thread gets the current group
+     * parameters and the immutable table of powers of g, keys from a group changed meanwhile are discarded.
+     */
+    public void refillEphemeralKeys() {
+        if (ephemeralKeys == null || g == null || p == null) {
+            return;
+        }
+        final BigInteger p = this.p;
+        final BigInteger q = ParticipantData.q;
+        final BigInteger g = this.g;
+        final FixedBaseExponentiation powers = getGeneratorPowers();
+        ephemeralKeys.refill(new Callable<EphemeralKeyPool.Key>() {
+            @Override
+            public EphemeralKeyPool.Key call() {
+                return generateEphemeralKey(p, q, g, powers);
+            }
+        });
+    }
+
+    /**
+     * Sets the number of keys k, r generated in advance.
+     * @param size - number of keys, 0 to generate the key when the re-keying phase starts
+     */
+    public void setEphemeralKeyPoolSize(int size) {
+        if (ephemeralKeys != null) {
+            ephemeralKeys.shutdown();
+        }
+        ephemeralKeys = size > 0 ? new EphemeralKeyPool(size) : null;
+    }
+
+    /**
+     * Stops the background threads, keys are generated and sub-keys are verified by the calling thread afterwards.
+     */
+    public void shutdown() {
+        setEphemeralKeyPoolSize(0);
+        setComputationThreads(1);
+    }
+
+    /**
+     * Decrypts and verifies the sub-key from given participant right after his keyAgreementPart2 message
+     * has been saved, if eager decryption is enabled, and adds it to the running sum of the current period.
+     * Nothing is done if the message belongs to another period or data needed for the verification are missing,
+     * such sub-keys are processed in decryptSubKeys.
+     * @param id - id of the sender
+     */
+    public void decryptSubKey(int id) {
+        PublicData data = participants.get(id);
+        if (!eagerDecryption || data == null || privateKeyX == null || !data.hasPart2(currentPeriod)
+                || data.getDecryptedPeriod() == currentPeriod || data.getEncryptedSubKey(currentPeriod) == null
+                || data.getPublicPolynomial() == null) {
+            return;
+        }
+        BigInteger decrypted = getReduction().multiply(data.getEncryptedSubKey(currentPeriod).mod(p),
+                data.getPublicKeyR(currentPeriod).modPow(privateKeyX, p));
+        boolean valid = isGeneratorInSubgroup() && isPublicPolynomialValid(data)
+                && powG(decrypted).equals(evaluatePublicPolynomial(data, computePeriodPowers(), getReduction()));
+        data.setDecryptedSubKey(decrypted, currentPeriod, valid);
+
+        if (eagerSumPeriod != currentPeriod) {
+            eagerSum = BigInteger.ZERO;
+            eagerSumPeriod = currentPeriod;
+        }
+        eagerSum = eagerSum.add(decrypted);
+    }
+
+    /**
+     * Decrypts eagerly the sub-keys of the new current period whose keyAgreementPart2 messages were buffered
+     * before the period started, so that they do not wait for decryptSubKeys.
+     */
+    public void decryptBufferedSubKeys() {
+        if (!eagerDecryption) {
+            return;
+        }
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+            decryptSubKey(participants.keyAt(slot));
+        }
+    }
+
+    /**
+     * Processes the sub-keys which have not been decrypted eagerly and collects all of them.
+     */
+    private void completeEagerDecryption() {
+        decryptedSubKeys = new IntObjectHashMap<BigInteger>(participants.size());
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+            decryptSubKey(participants.keyAt(slot));
+            decryptedSubKeys.put(participants.keyAt(slot), participants.valueAt(slot).getDecryptedSubKey());
         }
     }
 
     /**
      * Decrypts sub-keys from all the other participants.
+     * With eager decryption, only the sub-keys which have not been decrypted on arrival are decrypted.
      */
     public void decryptSubKeys() {
-        decryptedSubKeys = new HashMap<Integer, BigInteger>();
-        for (Map.Entry<Integer, PublicData> entry : participants.entrySet()) {
-            decryptedSubKeys.put(entry.getKey(), (entry.getValue().getEncryptedSubKey().multiply(entry.getValue().getPublicKeyR().modPow(privateKeyX, p))).mod(p));
+        if (eagerDecryption) {
+            completeEagerDecryption();
+            return;
+        }
+        final BarrettReduction reduction = getReduction();
+        final int[] ids = new int[participants.size()];
+        final PublicData[] data = new PublicData[ids.length];
+        snapshotParticipants(ids, data);
+        final BigInteger[] decrypted = new BigInteger[ids.length];
+        final int period = currentPeriod;
+        forEachParticipant(ids.length, new ParallelLoop.Body() {
+            @Override
+            public void run(int index) {
+                BigInteger encrypted = data[index].getEncryptedSubKey(period);
+                // A message without a sub-key for this participant leaves it null, verifySubKeys rejects it.
+                decrypted[index] = encrypted == null ? null : reduction.multiply(encrypted.mod(p),
+                        data[index].getPublicKeyR(period).modPow(privateKeyX, p));
+            }
+        });
+
+        decryptedSubKeys = new IntObjectHashMap<BigInteger>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            decryptedSubKeys.put(ids[i], decrypted[i]);
         }
     }
 
     /**
      * Verifies the sub-keys according to the Key computation phase of the protocol.
+     * If batch verification is enabled, all the sub-keys are checked at once first
+     * and each of them separately only if the combined check fails.
+     * The separate checks may run in parallel, the reported invalid participant is always the first one
+     * in the order of the participants. A participant who has not sent a sub-key for this participant
+     * is reported as invalid.
      * @return true if the sub-keys are valid, false otherwise
      */
     public Boolean verifySubKeys() {
-        for (Map.Entry<Integer, PublicData> participant : participants.entrySet()) {
-            List<BigInteger> controlValues = new ArrayList<BigInteger>();
-            controlValues.addAll(participant.getValue().getPublicPolynomial());
-            BigInteger product = BigInteger.ONE;
-            for (int j = 0; j <= numOfPeriods; j++) {
-                int pow = (int) Math.pow(currentPeriod, j);
-                BigInteger exponent = new BigInteger(String.valueOf(pow));
-                product = ((controlValues.get(j).modPow(exponent, p)).multiply(product)).mod(p);
-            }
-            if (!(g.modPow(decryptedSubKeys.get(participant.getKey()), p).equals(product))) {
+        invalidParticipant = null;
+
+        // Eagerly decrypted sub-keys have already been verified one by one.
+        if (eagerDecryption) {
+            for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+                PublicData data = participants.valueAt(slot);
+                if (data.getDecryptedPeriod() != currentPeriod || !data.isSubKeyValid()) {
+                    invalidParticipant = participants.keyAt(slot);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Exponents z^j are the same for all the participants.
+        final List<BigInteger> exponents = computePeriodPowers();
+        final BarrettReduction reduction = getReduction();
+        final int[] ids = new int[participants.size()];
+        final PublicData[] data = new PublicData[ids.length];
+        snapshotParticipants(ids, data);
+        final boolean[] valid = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            if (decryptedSubKeys.get(ids[i]) == null) {
+                invalidParticipant = ids[i];
+                return false;
+            }
+        }
+
+        // Both checks below are sound only for values in the subgroup of order q, other values are rejected first.
+        if (!isGeneratorInSubgroup()) {
+            return false;
+        }
+        forEachParticipant(ids.length, new ParallelLoop.Body() {
+            @Override
+            public void run(int index) {
+                valid[index] = isPublicPolynomialValid(data[index]);
+            }
+        });
+        for (int i = 0; i < ids.length; i++) {
+            if (!valid[i]) {
+                invalidParticipant = ids[i];
+                return false;
+            }
+        }
+
+        if (batchVerification && participants.size() > 1 && verifySubKeysInBatch(exponents, reduction)) {
+            return true;
+        }
+        forEachParticipant(ids.length, new ParallelLoop.Body() {
+            @Override
+            public void run(int index) {
+                BigInteger product = evaluatePublicPolynomial(data[index], exponents, reduction);
+                valid[index] = powG(decryptedSubKeys.get(ids[index])).equals(product);
+            }
+        });
+        for (int i = 0; i < ids.length; i++) {
+            if (!valid[i]) {
+                invalidParticipant = ids[i];
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Checks that the participant's public polynomial has t + 1 values, all of them in the subgroup of order q.
+     * Verification of sub-keys reduces the exponents modulo q and relies on the order of the group being prime,
+     * which does not hold outside the subgroup, e.g. for -1, since p - 1 is even.
+     * The result is kept with the participant's data, the polynomial does not change during the session.
+     * @param data
+     * @return true if the public polynomial may be used to verify sub-keys
+     */
+    private boolean isPublicPolynomialValid(PublicData data) {
+        Boolean valid = data.getPolynomialInSubgroup();
+        if (valid == null) {
+            List<BigInteger> polynomial = data.getPublicPolynomial();
+            valid = polynomial != null && polynomial.size() == numOfPeriods + 1;
+            for (int j = 0; valid && j < polynomial.size(); j++) {
+                valid = isInSubgroup(polynomial.get(j));
+            }
+            data.setPolynomialInSubgroup(valid);
+        }
+        return valid;
+    }
+
+    /**
+     * @return true if the generator g has order q, checked once for the group parameters
+     */
+    private boolean isGeneratorInSubgroup() {
+        if (generatorInSubgroup == null) {
+            generatorInSubgroup = !g.equals(BigInteger.ONE) && isInSubgroup(g);
+        }
+        return generatorInSubgroup;
+    }
+
+    /**
+     * @param value
+     * @return true if the value lies in the subgroup of order q of GF(p)*
+     */
+    private boolean isInSubgroup(BigInteger value) {
+        return value.signum() > 0 && value.compareTo(p) < 0 && value.modPow(q, p).equals(BigInteger.ONE);
+    }
+
+    /**
+     * Computes exponents z^j mod q for j = 0..t, where z is current period and t is total number of periods.
+     * Each power is obtained from the previous one by one multiplication. Reducing modulo q does not change
+     * the value of C^(z^j), because only public polynomials whose values C lie in the subgroup of order q
+     * are used for verification, see isPublicPolynomialValid.
+     * @return list of values z^j mod q
+     */
+    private List<BigInteger> computePeriodPowers() {
+        List<BigInteger> exponents = new ArrayList<BigInteger>(numOfPeriods + 1);
+        BigInteger period = BigInteger.valueOf(currentPeriod);
+        BigInteger power = BigInteger.ONE;
+        for (int j = 0; j <= numOfPeriods; j++) {
+            exponents.add(power);
+            power = power.multiply(period).mod(q);
+        }
+        return exponents;
+    }
+
+    /**
+     * Computes the product of C_j^(z^j) over the values C_j of the participant's public polynomial.
+     * Uses the participant's precomputed powers, which are built on first use if they fit into the limit.
+     * @param data
+     * @param exponents - values z^j mod q
+     * @param reduction - multiplication modulo p
+     * @return g^f(z), where f is the participant's secret polynomial, if the public polynomial is correct
+     */
+    private BigInteger evaluatePublicPolynomial(PublicData data, List<BigInteger> exponents,
+                                                BarrettReduction reduction) {
+        if (data.getPolynomialPowers() == null) {
+            precomputePolynomialPowers(data);
+        }
+        List<FixedBaseExponentiation> powers = data.getPolynomialPowers();
+        if (powers == null) {
+            return MultiExponentiation.product(data.getPublicPolynomial(), exponents, reduction);
+        }
+        BigInteger product = BigInteger.ONE;
+        for (int j = 0; j < exponents.size(); j++) {
+            product = reduction.multiply(product, powers.get(j).pow(exponents.get(j)));
+        }
+        return product;
+    }
+
+    /**
+     * Precomputes powers of the values of the participant's public polynomial, which never changes during the session,
+     * so that his sub-keys are verified faster in all the periods.
+     * Exponents z^j mod q are smaller than numOfPeriods^j and q, the tables cover only their bit length.
+     * Nothing is precomputed if group parameters are not known yet or the tables would exceed the limit.
+     * @param data
+     */
+    public void precomputePolynomialPowers(PublicData data) {
+        List<BigInteger> polynomial = data.getPublicPolynomial();
+        if (polynomialTableLimit <= 0 || p == null || q == null || polynomial == null || polynomial.size() != numOfPeriods + 1) {
+            return;
+        }
+        int periodBits = BigInteger.valueOf(numOfPeriods).bitLength();
+        int[] bits = new int[numOfPeriods + 1];
+        int[] windows = new int[numOfPeriods + 1];
+        long size = 0;
+        for (int j = 0; j <= numOfPeriods; j++) {
+            bits[j] = Math.max(1, Math.min(j * periodBits, q.bitLength()));
+            windows[j] = FixedBaseExponentiation.optimalWindow(bits[j], numOfPeriods);
+            size += FixedBaseExponentiation.tableSize(bits[j], windows[j]);
+            if (size > polynomialTableLimit) {
+                return;
+            }
+        }
+        List<FixedBaseExponentiation> powers = new ArrayList<FixedBaseExponentiation>(numOfPeriods + 1);
+        for (int j = 0; j <= numOfPeriods; j++) {
+            powers.add(new FixedBaseExponentiation(polynomial.get(j), p, bits[j], windows[j]));
+        }
+        data.setPolynomialPowers(powers);
+    }
+
+    /**
+     * Verifies the sub-keys of all the participants by one combined equation
+     * g^(sum of d_i * s_i) = product over j of (product over i of C_ij^d_i)^(z^j),
+     * where s_i is the sub-key of participant i, C_ij are values of his public polynomial
+     * and d_i are random numbers of BATCH_EXPONENT_BITS bits.
+     * Provided that g and all the values C_ij lie in the subgroup of prime order q, which verifySubKeys checks
+     * before, an invalid sub-key passes the check with probability at most 2^-BATCH_EXPONENT_BITS.
+     * Without that check, a value multiplied by -1 would pass with probability 1/2.
+     * @param exponents - values z^j mod q
+     * @param reduction - multiplication modulo p
+     * @return true if all the sub-keys are valid, false if at least one of them is invalid
+     */
+    private boolean verifySubKeysInBatch(List<BigInteger> exponents, BarrettReduction reduction) {
+        List<BigInteger> randomExponents = new ArrayList<BigInteger>(participants.size());
+        BigInteger sum = BigInteger.ZERO;
+        for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+            BigInteger d = new BigInteger(BATCH_EXPONENT_BITS, secureRandom);
+            randomExponents.add(d);
+            sum = sum.add(d.multiply(decryptedSubKeys.get(participants.keyAt(slot))));
+        }
+
+        // Combine values of all the public polynomials with the same index j.
+        List<BigInteger> combined = new ArrayList<BigInteger>(numOfPeriods + 1);
+        List<BigInteger> bases = new ArrayList<BigInteger>(participants.size());
+        for (int j = 0; j <= numOfPeriods; j++) {
+            bases.clear();
+            for (int slot = participants.nextSlot(-1); slot >= 0; slot = participants.nextSlot(slot)) {
+                bases.add(participants.valueAt(slot).getPublicPolynomial().get(j));
+            }
+            combined.add(MultiExponentiation.product(bases, randomExponents, reduction));
+        }
+        return powG(sum.mod(q)).equals(MultiExponentiation.product(combined, exponents, reduction));
+    }
+
     /**
      * Computes a group key, which is sum of all the sub-keys.
      */
     public BigInteger computeConferenceKey() {
-        conferenceKey = new BigInteger(String.valueOf(subKey));
-        for (BigInteger value : decryptedSubKeys.values()) {
-            conferenceKey = (conferenceKey.add(value)).mod(q);
+        // The sum is reduced only once, the result does not depend on the order of the sub-keys.
+        BigInteger sum = subKey;
+        if (eagerDecryption) {
+            sum = eagerSumPeriod == currentPeriod ? sum.add(eagerSum) : sum;
+        } else {
+            for (int slot = decryptedSubKeys.nextSlot(-1); slot >= 0; slot = decryptedSubKeys.nextSlot(slot)) {
+                sum = sum.add(decryptedSubKeys.valueAt(slot));
+            }
         }
+        conferenceKey = sum.mod(q);
         return conferenceKey;
     }
 
@@ -206,11 +847,15 @@ public class ParticipantData {
         return publicKeyR;
     }
 
-    public Map<Integer, BigInteger> getEncryptedSubKeys() {
+    public BigInteger getConferenceKey() {
+        return conferenceKey;
+    }
+
+    public IntObjectHashMap<BigInteger> getEncryptedSubKeys() {
         return encryptedSubKeys;
     }
 
-    public Map<Integer, PublicData> getParticipants() {
+    public IntObjectHashMap<PublicData> getParticipants() {
 
         return participants;
     }
@@ -221,6 +866,7 @@ public class ParticipantData {
 
     public void setG(BigInteger g) {
         this.g = g;
+        generatorInSubgroup = null;
     }
 
     public BigInteger getP() {
@@ -229,6 +875,7 @@ public class ParticipantData {
 
     public void setP(BigInteger p) {
         this.p = p;
+        generatorInSubgroup = null;
     }
 
     public static BigInteger getQ() {
@@ -245,9 +892,54 @@ public class ParticipantData {
 
     public void setCurrentPeriod(int currentPeriod) {
         this.currentPeriod = currentPeriod;
+        resetPart2Outstanding();
     }
 
     public void setNumOfPeriods(int numOfPeriods) {
         this.numOfPeriods = numOfPeriods;
     }
+
+    public GroupParametersProvider getGroupParametersProvider() {
+        return groupParametersProvider;
+    }
+
+    public void setGroupParametersProvider(GroupParametersProvider groupParametersProvider) {
+        this.groupParametersProvider = groupParametersProvider;
+    }
+
+    public boolean isBatchVerification() {
+        return batchVerification;
+    }
+
+    public void setBatchVerification(boolean batchVerification) {
+        this.batchVerification = batchVerification;
+    }
+
+    public Integer getInvalidParticipant() {
+        return invalidParticipant;
+    }
+
+    public boolean isPrecomputeSubKeys() {
+        return precomputeSubKeys;
+    }
+
+    public void setPrecomputeSubKeys(boolean precomputeSubKeys) {
+        this.precomputeSubKeys = precomputeSubKeys;
+    }
+
+    public boolean isEagerDecryption() {
+        return eagerDecryption;
+    }
+
+    public void setEagerDecryption(boolean eagerDecryption) {
+        this.eagerDecryption = eagerDecryption;
+    }
+
+    public int getPolynomialTableLimit() {
+        return polynomialTableLimit;
+    }
+
+    public void setPolynomialTableLimit(int polynomialTableLimit) {
+        this.polynomialTableLimit = polynomialTableLimit;
+    }
 }
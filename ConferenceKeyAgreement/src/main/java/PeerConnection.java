@@ -0,0 +1,117 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * @author Zuzana Melsova
+ * Long-lived outgoing connection to one participant.
+ * If the participant accepts the framed format, messages are written with a length prefix, so any number
+ * of them can be sent through the same socket. Otherwise a new socket is opened for every message.
+ */
+public class PeerConnection {
+
+    // Maximal time in milliseconds to wait for the answer to the offer of the framed format.
+    private static final int HANDSHAKE_TIMEOUT = 1000;
+
+    private final int port;
+    private final boolean framed;
+    private Socket socket; // Open socket of the framed connection, null if the participant does not accept it.
+    private OutputStream out;
+    private volatile Socket messageSocket; // Socket of the message being sent if the connection is not framed.
+
+    /**
+     * Opens a new connection to the participant listening on given port and negotiates the format of messages.
+     * @param port
+     * @throws IOException
+     */
+    public PeerConnection(int port) throws IOException {
+        this(port, true);
+    }
+
+    /**
+     * Opens a new connection to the participant listening on given port.
+     * @param port
+     * @param offerFraming - false if the participant is known not to accept the framed format,
+     * then the original format is used without waiting for the answer to the offer
+     * @throws IOException
+     */
+    public PeerConnection(int port, boolean offerFraming) throws IOException {
+        this.port = port;
+        if (!offerFraming) {
+            this.framed = false;
+            return;
+        }
+        Socket socket = open(port);
+        if (Framing.offer(socket, HANDSHAKE_TIMEOUT)) {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+            this.framed = true;
+        } else {
+            socket.close();
+            this.framed = false;
+            AbstractMessageTransport.LOGGER.info("Participant on port " + port + " does not accept framed messages, a new connection will be used for every message.");
+        }
+    }
+
+    private static Socket open(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getByName("localhost"), port);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    /**
+     * Writes the message to the connection.
+     * @param msg
+     * @throws IOException
+     */
+    public synchronized void send(EncodedMessage msg) throws IOException {
+        if (framed) {
+            msg.writeDelimitedTo(out);
+            out.flush();
+        } else {
+            Socket socket = open(port);
+            messageSocket = socket;
+            try {
+                OutputStream out = socket.getOutputStream();
+                msg.writeTo(out);
+                out.flush();
+            } finally {
+                messageSocket = null;
+                socket.close();
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        return !framed || !socket.isClosed();
+    }
+
+    public boolean isFramed() {
+        return framed;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Closes the connection, the receiver sees the end of the stream.
+     * May be called by another thread to abort the message being sent.
+     */
+    public void close() {
+        close(socket);
+        close(messageSocket);
+    }
+
+    private static void close(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            AbstractMessageTransport.LOGGER.error("Error occurred when closing socket", e);
+        }
+    }
+}
@@ -6,12 +6,30 @@ import java.util.List;
  * Data structure for saving information from other participants.
  */
 public class PublicData {
+    // Number of periods for which keyAgreementPart2 messages are kept, so that messages for following periods
+    // sent by faster participants do not overwrite data of the current period.
+    public static final int PART2_BUFFER_SIZE = 4;
+
     private int period; // latest period in which keyAgreementPart2 message was received from this participant
     private boolean part1received; // set on true if the keyAgreementPart1 message has been received from this participant
     private BigInteger publicKeyY;
     private List<BigInteger> publicPolynomial;
-    private BigInteger publicKeyR;
-    private BigInteger encryptedSubKey;
+
+    // Data from keyAgreementPart2 messages, the message for period z is kept at index z % PART2_BUFFER_SIZE.
+    private final int[] part2Periods = new int[PART2_BUFFER_SIZE];
+    private final BigInteger[] publicKeysR = new BigInteger[PART2_BUFFER_SIZE];
+    private final BigInteger[] encryptedSubKeys = new BigInteger[PART2_BUFFER_SIZE];
+
+    // Sub-key decrypted as soon as keyAgreementPart2 message arrived, valid only in period decryptedPeriod.
+    private BigInteger decryptedSubKey;
+    private int decryptedPeriod;
+    private boolean subKeyValid;
+
+    // Precomputed powers of the values of the public polynomial, used to verify sub-keys in all the periods.
+    private List<FixedBaseExponentiation> polynomialPowers;
+
+    // True if all the values of the public polynomial lie in the subgroup of order q, null until checked.
+    private Boolean polynomialInSubgroup;
 
 
     public PublicData(BigInteger publicKeyY, List<BigInteger> publicPolynomial) {
@@ -33,10 +51,6 @@ public class PublicData {
         return period;
     }
 
-    public void setPeriod(int period) {
-        this.period = period;
-    }
-
     public BigInteger getPublicKeyY() {
         return publicKeyY;
     }
@@ -51,21 +65,93 @@ public class PublicData {
 
     public void setPublicPolynomial(List<BigInteger> publicPolynomial) {
         this.publicPolynomial = publicPolynomial;
+        this.polynomialPowers = null;
+        this.polynomialInSubgroup = null;
+    }
+
+    public Boolean getPolynomialInSubgroup() {
+        return polynomialInSubgroup;
+    }
+
+    public void setPolynomialInSubgroup(Boolean polynomialInSubgroup) {
+        this.polynomialInSubgroup = polynomialInSubgroup;
+    }
+
+    public List<FixedBaseExponentiation> getPolynomialPowers() {
+        return polynomialPowers;
+    }
+
+    public void setPolynomialPowers(List<FixedBaseExponentiation> polynomialPowers) {
+        this.polynomialPowers = polynomialPowers;
+    }
+
+    /**
+     * Saves data from keyAgreementPart2 message for given period. The message replaces data of the period
+     * PART2_BUFFER_SIZE periods back, a message older than the data already kept in its place is ignored.
+     * @param period
+     * @param publicKeyR
+     * @param encryptedSubKey - sub-key encrypted for this participant, null if the message contains none
+     * @return false if the message has been ignored
+     */
+    public boolean savePart2(int period, BigInteger publicKeyR, BigInteger encryptedSubKey) {
+        int index = period % PART2_BUFFER_SIZE;
+        if (period <= 0 || part2Periods[index] > period) {
+            return false;
+        }
+        part2Periods[index] = period;
+        publicKeysR[index] = publicKeyR;
+        encryptedSubKeys[index] = encryptedSubKey;
+        if (period > this.period) {
+            this.period = period;
+        }
+        return true;
+    }
+
+    /**
+     * @param period
+     * @return true if keyAgreementPart2 message for given period has been received
+     */
+    public boolean hasPart2(int period) {
+        return period > 0 && part2Periods[period % PART2_BUFFER_SIZE] == period;
+    }
+
+    /**
+     * @param period
+     * @return public key R received for given period, null if the message is not available
+     */
+    public BigInteger getPublicKeyR(int period) {
+        return hasPart2(period) ? publicKeysR[period % PART2_BUFFER_SIZE] : null;
+    }
+
+    /**
+     * @param period
+     * @return sub-key encrypted for this participant received for given period, null if not available
+     */
+    public BigInteger getEncryptedSubKey(int period) {
+        return hasPart2(period) ? encryptedSubKeys[period % PART2_BUFFER_SIZE] : null;
     }
 
-    public BigInteger getPublicKeyR() {
-        return publicKeyR;
+    public BigInteger getDecryptedSubKey() {
+        return decryptedSubKey;
     }
 
-    public void setPublicKeyR(BigInteger publicKeyR) {
-        this.publicKeyR = publicKeyR;
+    public int getDecryptedPeriod() {
+        return decryptedPeriod;
     }
 
-    public BigInteger getEncryptedSubKey() {
-        return encryptedSubKey;
+    public boolean isSubKeyValid() {
+        return subKeyValid;
     }
 
-    public void setEncryptedSubKey(BigInteger encryptedSubKey) {
-        this.encryptedSubKey = encryptedSubKey;
+    /**
+     * Saves the sub-key decrypted and verified in given period.
+     * @param decryptedSubKey
+     * @param decryptedPeriod
+     * @param subKeyValid - result of the verification
+     */
+    public void setDecryptedSubKey(BigInteger decryptedSubKey, int decryptedPeriod, boolean subKeyValid) {
+        this.decryptedSubKey = decryptedSubKey;
+        this.decryptedPeriod = decryptedPeriod;
+        this.subKeyValid = subKeyValid;
     }
-}
\ No newline at end of file
+}
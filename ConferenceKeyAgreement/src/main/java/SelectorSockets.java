@@ -0,0 +1,276 @@
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * @author Zuzana Melsova
+ * This class handles communication through non-blocking socket channels.
+ * All the incoming connections are served by one thread waiting on a selector,
+ * each connection has its own reusable buffer in which received messages are collected.
+ * The buffer grows for a large message and shrinks back to the initial size after it has been delivered.
+ * A connection sending a message larger than Framing.MAX_MESSAGE_SIZE is closed.
+ * The format of messages on each connection is negotiated as described in class Framing.
+ * Only reading is multiplexed, messages are sent through blocking sockets by the calling thread or by the threads
+ * of concurrent sending, see AbstractMessageTransport.
+ */
+public class SelectorSockets extends AbstractMessageTransport {
+
+    static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(SelectorSockets.class);
+
+    // Initial size of the buffer of each connection, the buffer grows if a message does not fit into it.
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Size to which the buffer may grow, enough for the largest accepted message together with its length prefix.
+    private static final int MAX_BUFFER_SIZE = Framing.MAX_MESSAGE_SIZE + Framing.MAX_PREFIX_SIZE;
+
+    private volatile Selector selector;
+    private Thread listener;
+
+    // Received message copied from the connection buffer, used only by the listener thread.
+    // A message which does not fit is copied to a temporary array instead.
+    private final byte[] frame = new byte[BUFFER_SIZE];
+
+    /**
+     * Constructor
+     * Starts a new thread listening on given port.
+     * @param myPort
+     */
+    public SelectorSockets(final Integer myPort) {
+        super(myPort);
+        listener = new Thread() {
+            @Override
+            public void run() {
+                listen();
+            }
+        };
+        listener.start();
+    }
+
+    private void listen() {
+        LOGGER.info("Starting listener on port " + myPort);
+        ServerSocketChannel serverChannel;
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().bind(new InetSocketAddress(myPort));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            LOGGER.error("Error occurred when creating socket.", e);
+            return;
+        }
+
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(serverChannel);
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error occurred in the socket during listening to incoming messages.", e);
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.error("Error occurred when closing socket.", e);
+        }
+        closeConnections();
+    }
+
+    /**
+     * Accepts a new connection and registers it for reading.
+     * @param serverChannel
+     * @throws IOException
+     */
+    private void accept(ServerSocketChannel serverChannel) throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    /**
+     * Reads available data from the connection and delivers all the complete messages.
+     * @param key
+     */
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer buffer = connection.buffer;
+        try {
+            if (channel.read(buffer) < 0) {
+                // The sender has closed the connection, which completes a message sent in the original format.
+                if (Boolean.FALSE.equals(connection.framed)) {
+                    buffer.flip();
+                    dispatch(parse(buffer, buffer.remaining()), false);
+                }
+                close(key);
+                return;
+            }
+            buffer.flip();
+            if (connection.framed == null) {
+                negotiate(channel, connection);
+            }
+            if (Boolean.TRUE.equals(connection.framed)) {
+                readFrames(buffer);
+            }
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                // Incomplete message fills the whole buffer.
+                if (buffer.capacity() >= MAX_BUFFER_SIZE) {
+                    throw new InvalidProtocolBufferException("Message exceeds " + Framing.MAX_MESSAGE_SIZE + " bytes.");
+                }
+                connection.buffer = copy(buffer, Math.min(buffer.capacity() * 2, MAX_BUFFER_SIZE));
+            } else if (buffer.capacity() > BUFFER_SIZE && buffer.position() <= BUFFER_SIZE / 2) {
+                // The large message has been delivered, the rest fits into a buffer of the initial size.
+                connection.buffer = copy(buffer, BUFFER_SIZE);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error occurred in the socket during listening to incoming messages.", e);
+            close(key);
+        }
+    }
+
+    /**
+     * Decides the format of messages from the first bytes of the connection, answers the offer of the framed format.
+     * The format stays unknown while only a part of the preamble has arrived.
+     * @param channel
+     * @param connection
+     * @throws IOException
+     */
+    private void negotiate(SocketChannel channel, Connection connection) throws IOException {
+        ByteBuffer buffer = connection.buffer;
+        if (!buffer.hasRemaining()) {
+            return;
+        }
+        if (buffer.get(buffer.position()) != Framing.PREAMBLE[0]) {
+            connection.framed = false;
+            return;
+        }
+        if (buffer.remaining() < Framing.PREAMBLE.length) {
+            return;
+        }
+        byte[] preamble = new byte[Framing.PREAMBLE.length];
+        buffer.get(preamble);
+        Framing.checkPreamble(preamble);
+        // Nothing has been written to the new connection yet, so the single byte fits into the send buffer.
+        channel.write(ByteBuffer.wrap(new byte[]{(byte) Framing.ACK}));
+        connection.framed = true;
+    }
+
+    /**
+     * Delivers all the complete length-delimited messages from the buffer.
+     * @param buffer
+     * @throws IOException
+     */
+    private void readFrames(ByteBuffer buffer) throws IOException {
+        while (true) {
+            int start = buffer.position();
+            int length = Framing.readRawVarint32(buffer);
+            if (length > Framing.MAX_MESSAGE_SIZE) {
+                throw new InvalidProtocolBufferException("Message of " + length + " bytes exceeds " + Framing.MAX_MESSAGE_SIZE + " bytes.");
+            }
+            if (length < 0 || buffer.remaining() < length) {
+                // The rest of the message has not arrived yet.
+                buffer.position(start);
+                return;
+            }
+            dispatch(parse(buffer, length), true);
+        }
+    }
+
+    /**
+     * Parses the message from given number of bytes at the position of the buffer.
+     * @param buffer
+     * @param length
+     * @return the message
+     * @throws IOException
+     */
+    private Message.Msg parse(ByteBuffer buffer, int length) throws IOException {
+        byte[] bytes = length <= frame.length ? frame : new byte[length];
+        buffer.get(bytes, 0, length);
+        return Message.Msg.PARSER.parseFrom(bytes, 0, length);
+    }
+
+    /**
+     * @param buffer - buffer after compact, with the received data before its position
+     * @param capacity
+     * @return new direct buffer of given capacity with the received data
+     */
+    private static ByteBuffer copy(ByteBuffer buffer, int capacity) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        copy.put(buffer);
+        return copy;
+    }
+
+    /**
+     * Delivers the message, a failure while processing it does not stop the listener.
+     * @param msg
+     * @param framed - true if the message has been received in the framed format
+     */
+    private void dispatch(Message.Msg msg, boolean framed) {
+        try {
+            if (framed) {
+                deliver(msg);
+            } else {
+                deliverUnframed(msg);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Error occurred when processing message from " + msg.getSenderId(), e);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            LOGGER.error("Error occurred when closing socket.", e);
+        }
+    }
+
+    /**
+     * State of an incoming connection.
+     */
+    private static class Connection {
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private Boolean framed; // null until the format of messages is known
+    }
+
+    /**
+     * Stops listening to incoming messages.
+     */
+    public void stop() {
+        this.running = false;
+        Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        LOGGER.info("Listener has been stopped on port" + myPort);
+    }
+}
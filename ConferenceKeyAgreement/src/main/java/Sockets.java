@@ -2,40 +2,35 @@
 import org.slf4j.*;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.InetAddress;
+import java.io.PushbackInputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @author Zuzana Melsova
  * This class handles communication through sockets.
+ * Incoming connections are accepted by a blocking listener thread and each of them is read by its own thread.
+ * The format of messages on each connection is negotiated as described in class Framing.
  */
-public class Sockets {
+public class Sockets extends AbstractMessageTransport {
 
     static org.slf4j.Logger LOGGER = LoggerFactory.getLogger(Sockets.class);
 
-    private Map<Integer, Integer> ports; // Ports associated with participants IDs.
-    private Socket clientSocket;
+    private Set<Socket> incoming; // Open incoming connections.
     private ServerSocket serverSocket;
-    private int myPort;
     private Thread listener;
-    private InputStream in;
-    private OutputStream out;
-    private MessageListener messageListener;
-    private volatile boolean running = true;
 
     /**
      * Constructor
-     * Starts a new thread listening on given port.
+     * Starts a new thread accepting connections on given port.
      * @param myPort
      */
     public Sockets(final Integer myPort) {
-        this.myPort = myPort;
-        ports = new HashMap<Integer, Integer>();
+        super(myPort);
+        incoming = Collections.synchronizedSet(new HashSet<Socket>());
         listener = new Thread() {
             @Override
             public void run() {
@@ -50,89 +45,83 @@ public class Sockets {
 
                 while (running) {
                     try {
-                        clientSocket = serverSocket.accept();
-                        in = clientSocket.getInputStream();
-                        Message.Msg msg = Message.Msg.parseFrom(in);
-                        LOGGER.info(myPort + " received message from: " + msg.getSenderId() + " " + msg.getType());
-                        if (msg != null) {
-                            getMessageListener().messageReceived(msg);
-                        }
+                        // Every accepted connection is kept open and read by its own thread
+                        // until the sender closes it.
+                        Socket clientSocket = serverSocket.accept();
+                        startReader(clientSocket);
                     } catch (java.net.SocketTimeoutException e) {}
                     catch (Exception e) {
                         LOGGER.error("Error occurred in the socket during listening to incoming messages.", e);
-                    } finally {
-                        if ((clientSocket != null) && !clientSocket.isClosed()) {
-                            try {
-                                clientSocket.close();
-                            } catch (IOException e) {
-                                LOGGER.error("Error occurred when closing socket.", e);
-                            }
-                        }
                     }
                 }
                 try {
-                    if (in != null) {
-                        in.close();
-                    }
                     if ((serverSocket != null) && (!serverSocket.isClosed())) {
                         serverSocket.close();
                     }
                 } catch (IOException e) {
                     LOGGER.error("Error occurred when closing socket.", e);
                 }
+                closeConnections();
+                closeIncomingConnections();
             }
         };
         listener.start();
     }
 
     /**
-     * Sends given message to all the other participants.
-     * @param msg
+     * Closes all the incoming connections, their reader threads terminate.
      */
-    public void sendMsgToEveryone(Message.Msg msg) {
-        for (Integer id : ports.keySet()) {
-            sendMsgTo(msg, id);
+    private void closeIncomingConnections() {
+        synchronized (incoming) {
+            for (Socket socket : incoming) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    LOGGER.error("Error occurred when closing socket.", e);
+                }
+            }
+            incoming.clear();
         }
     }
 
     /**
-     * Sends the message to the participant with given id.
-     * @param msg
-     * @param id - receiver's id
+     * Starts a new thread reading messages from the accepted connection.
+     * Framed connections are read until the sender closes them, otherwise the connection carries one message.
+     * @param clientSocket
      */
-    public void sendMsgTo(Message.Msg msg, Integer id) {
-        if (ports.containsKey(id)) {
-            int port = ports.get(id);
-            Socket socket = null;
-
-            try {
-                // Open socket
-                socket = new Socket(InetAddress.getByName("localhost"), port);
-                out = socket.getOutputStream();
-
-                // Write message to socket
-                msg.writeTo(out);
-                out.flush();
-                out.close();
-                LOGGER.info("Message has been sent to : " + port + ": " + msg.getType());
-            } catch (IOException e) {
-                LOGGER.error("Error occurred when sending message to " + port, e);
-            }
-            finally
-            {
-                if ((socket != null) && !socket.isClosed())
-                {
-                    try
-                    {
-                        socket.close();
+    private void startReader(final Socket clientSocket) {
+        incoming.add(clientSocket);
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    PushbackInputStream in = new PushbackInputStream(clientSocket.getInputStream());
+                    if (Framing.accept(in, clientSocket.getOutputStream())) {
+                        Message.Msg msg;
+                        while (running && (msg = Message.Msg.parseDelimitedFrom(in)) != null) {
+                            deliver(msg);
+                        }
+                    } else {
+                        deliverUnframed(Message.Msg.parseFrom(in));
                     }
-                    catch (Exception ex)
-                    {
-                        LOGGER.error("Error occurred when closing socket", ex);
+                } catch (IOException e) {
+                    if (running) {
+                        LOGGER.error("Error occurred in the socket during listening to incoming messages.", e);
+                    }
+                } finally {
+                    incoming.remove(clientSocket);
+                    if (!clientSocket.isClosed()) {
+                        try {
+                            clientSocket.close();
+                        } catch (IOException e) {
+                            LOGGER.error("Error occurred when closing socket.", e);
+                        }
                     }
                 }
             }
-        }
+        };
+        reader.setDaemon(true);
+        reader.start();
     }
 
     /**
@@ -142,24 +131,4 @@ public class Sockets {
         this.running = false;
         LOGGER.info("Listener has been stopped on port" + myPort);
     }
-
-    public MessageListener getMessageListener() {
-        return messageListener;
-    }
-
-    public void setMessageListener(MessageListener messageListener) {
-        this.messageListener = messageListener;
-    }
-
-    public void setPorts(Map<Integer, Integer> ports) {
-        this.ports = ports;
-    }
-
-    public Map<Integer, Integer> getPorts() {
-        return ports;
-    }
-
-    public int getMyPort() {
-        return myPort;
-    }
 }
@@ -0,0 +1,56 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Compares Barrett reduction with BigInteger.mod.
+ */
+public class BarrettReductionTest {
+
+    private static final BigInteger P = GroupParametersProvider.wellKnownGroup("modp1024").getP();
+
+    @Test
+    public void multiplyMatchesMod() {
+        Random rnd = new Random(1);
+        for (int bits : new int[]{2, 3, 17, 64, 65, 512, 1024, 2048}) {
+            for (int m = 0; m < 20; m++) {
+                BigInteger modulus = new BigInteger(bits, rnd).setBit(bits - 1);
+                check(modulus, rnd);
+            }
+        }
+        check(P, rnd);
+    }
+
+    @Test
+    public void reduceMatchesModAtBoundaries() {
+        BarrettReduction reduction = new BarrettReduction(P);
+        BigInteger max = P.subtract(BigInteger.ONE);
+        BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE, max, P, P.add(BigInteger.ONE), P.multiply(max),
+                P.multiply(P).subtract(BigInteger.ONE)};
+        for (BigInteger x : values) {
+            assertEquals(x.mod(P), reduction.reduce(x));
+        }
+        assertEquals(max.multiply(max).mod(P), reduction.multiply(max, max));
+        assertEquals(BigInteger.ZERO, reduction.multiply(BigInteger.ZERO, max));
+    }
+
+    @Test
+    public void powerOfTwoModulus() {
+        BigInteger modulus = BigInteger.ONE.shiftLeft(100);
+        check(modulus, new Random(2));
+    }
+
+    private static void check(BigInteger modulus, Random rnd) {
+        BarrettReduction reduction = new BarrettReduction(modulus);
+        assertEquals(modulus, reduction.getModulus());
+        for (int i = 0; i < 200; i++) {
+            BigInteger a = new BigInteger(modulus.bitLength(), rnd).mod(modulus);
+            BigInteger b = new BigInteger(modulus.bitLength(), rnd).mod(modulus);
+            assertEquals(a.multiply(b).mod(modulus), reduction.multiply(a, b));
+        }
+    }
+}
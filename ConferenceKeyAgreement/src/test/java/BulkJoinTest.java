@@ -0,0 +1,97 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Tests of adding several participants in one period, run by several participants on local ports.
+ */
+public class BulkJoinTest {
+
+    private static final long JOIN_TIMEOUT = 1000;
+
+    private TestConference conference;
+
+    @After
+    public void stop() {
+        if (conference != null) {
+            conference.stop();
+        }
+    }
+
+    @Test
+    public void participantsAddedTogetherJoinInOnePeriod() throws Exception {
+        conference = new TestConference(0, JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+        conference.start(members);
+        int period = conference.period(1);
+
+        Map<Integer, Integer> newcomers = new HashMap<Integer, Integer>();
+        for (int id = 4; id <= 7; id++) {
+            conference.node(id);
+            newcomers.put(id, conference.port(id));
+        }
+        conference.get(2).addParticipants(newcomers);
+        members.addAll(newcomers.keySet());
+        conference.awaitAgreement(members);
+        assertEquals(period + 1, conference.period(1));
+    }
+
+    /**
+     * Newcomers added together with a co-joiner who never sends Joining message are included without him
+     * after the join timeout, nobody sends him messages afterwards.
+     */
+    @Test
+    public void coJoinerWhoDoesNotJoinIsDropped() throws Exception {
+        conference = new TestConference(0, JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+        conference.start(members);
+
+        conference.node(4);
+        Map<Integer, Integer> newcomers = new HashMap<Integer, Integer>();
+        newcomers.put(4, conference.port(4));
+        newcomers.put(5, TestConference.freePort());
+        long start = System.currentTimeMillis();
+        conference.get(2).addParticipants(newcomers);
+        members.add(4);
+        conference.awaitAgreement(members);
+        assertTrue(System.currentTimeMillis() - start < JOIN_TIMEOUT + 5000);
+        for (Integer id : members) {
+            assertFalse(conference.get(id).getStateEngine().getSockets().getPorts().containsKey(5));
+        }
+
+        // The group goes on without him.
+        conference.node(6);
+        conference.get(4).addParticipant(6, conference.port(6));
+        members.add(6);
+        conference.awaitAgreement(members);
+    }
+
+    @Test
+    public void bulkJoinTogetherWithLeave() throws Exception {
+        conference = new TestConference(300, JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4));
+        conference.start(members);
+        int period = conference.period(1);
+
+        Map<Integer, Integer> newcomers = new HashMap<Integer, Integer>();
+        for (int id = 5; id <= 6; id++) {
+            conference.node(id);
+            newcomers.put(id, conference.port(id));
+        }
+        conference.get(3).leaveConference();
+        conference.get(4).addParticipants(newcomers);
+        members.remove(Integer.valueOf(3));
+        members.addAll(newcomers.keySet());
+        conference.awaitAgreement(members);
+        conference.awaitLeft(3);
+        assertEquals(period + 1, conference.period(1));
+    }
+}
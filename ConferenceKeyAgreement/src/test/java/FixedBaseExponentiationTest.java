@@ -0,0 +1,110 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Compares powers computed from the precomputed tables with BigInteger.modPow.
+ */
+public class FixedBaseExponentiationTest {
+
+    private static final GroupParameters GROUP = GroupParametersProvider.wellKnownGroup("modp1024");
+
+    @Test
+    public void powMatchesModPow() {
+        Random rnd = new Random(1);
+        BigInteger p = GROUP.getP();
+        BigInteger g = GROUP.getG();
+        int maxBits = GROUP.getQ().bitLength();
+        FixedBaseExponentiation powers = new FixedBaseExponentiation(g, p, maxBits);
+        for (int i = 0; i < 100; i++) {
+            BigInteger exponent = new BigInteger(maxBits, rnd);
+            assertEquals(g.modPow(exponent, p), powers.pow(exponent));
+        }
+    }
+
+    @Test
+    public void powMatchesModPowForAllWindows() {
+        Random rnd = new Random(2);
+        BigInteger p = GROUP.getP();
+        BigInteger base = new BigInteger(p.bitLength(), rnd).mod(p);
+        for (int window = 1; window <= 8; window++) {
+            for (int maxBits : new int[]{1, 7, 8, 9, 100}) {
+                FixedBaseExponentiation powers = new FixedBaseExponentiation(base, p, maxBits, window);
+                assertEquals(maxBits, powers.getMaxBits());
+                for (int bits = 0; bits <= maxBits; bits++) {
+                    BigInteger exponent = bits == 0 ? BigInteger.ZERO : new BigInteger(bits, rnd).setBit(bits - 1);
+                    assertEquals(base.modPow(exponent, p), powers.pow(exponent));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void longerAndNegativeExponentsFallBackToModPow() {
+        Random rnd = new Random(3);
+        BigInteger p = GROUP.getP();
+        BigInteger g = GROUP.getG();
+        FixedBaseExponentiation powers = new FixedBaseExponentiation(g, p, 64);
+        BigInteger longer = new BigInteger(200, rnd).setBit(199);
+        assertEquals(g.modPow(longer, p), powers.pow(longer));
+        BigInteger negative = BigInteger.valueOf(-12345);
+        assertEquals(g.modPow(negative, p), powers.pow(negative));
+    }
+
+    @Test
+    public void baseLargerThanModulus() {
+        BigInteger modulus = BigInteger.valueOf(1000003);
+        BigInteger base = modulus.multiply(BigInteger.valueOf(7)).add(BigInteger.valueOf(5));
+        FixedBaseExponentiation powers = new FixedBaseExponentiation(base, modulus, 32, 4);
+        for (long e = 0; e < 1000; e += 37) {
+            BigInteger exponent = BigInteger.valueOf(e * 1000003L);
+            assertEquals(base.modPow(exponent, modulus), powers.pow(exponent));
+        }
+    }
+
+    @Test
+    public void matchesOnlyItsBaseAndModulus() {
+        BigInteger p = GROUP.getP();
+        BigInteger g = GROUP.getG();
+        FixedBaseExponentiation powers = new FixedBaseExponentiation(g, p, 16);
+        assertTrue(powers.matches(g, p));
+        assertFalse(powers.matches(g.add(BigInteger.ONE), p));
+        assertFalse(powers.matches(g, p.subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    public void digitMatchesTestBit() {
+        Random rnd = new Random(4);
+        for (int i = 0; i < 100; i++) {
+            BigInteger value = new BigInteger(300, rnd);
+            byte[] magnitude = value.toByteArray();
+            for (int width = 1; width <= 8; width++) {
+                for (int from = 0; from < 310; from += width) {
+                    int expected = 0;
+                    for (int bit = width - 1; bit >= 0; bit--) {
+                        expected = (expected << 1) | (value.testBit(from + bit) ? 1 : 0);
+                    }
+                    assertEquals(expected, FixedBaseExponentiation.digit(magnitude, from, width));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void windowGrowsWithNumberOfPowers() {
+        for (int maxBits : new int[]{1, 10, 64, 160, 1024}) {
+            int previous = 1;
+            for (int uses = 1; uses <= 100000; uses *= 10) {
+                int window = FixedBaseExponentiation.optimalWindow(maxBits, uses);
+                assertTrue(window >= previous && window <= 8);
+                previous = window;
+            }
+        }
+        assertEquals(8, FixedBaseExponentiation.optimalWindow(1024, 100000));
+        assertEquals(171L << 6, FixedBaseExponentiation.tableSize(1024, 6));
+    }
+}
@@ -0,0 +1,325 @@
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Tests of the framed wire format against the encoding of protobuf and of the fallback to one message per connection.
+ */
+public class FramingTest {
+
+    private static final int RECEIVE_TIMEOUT = 5000;
+
+    @Test
+    public void encodedMessageMatchesProtobufEncoding() throws IOException {
+        for (int size : new int[]{0, 1, 100, 127, 128, 20000}) {
+            Message.Msg msg = message(7, size);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            msg.writeDelimitedTo(expected);
+            ByteArrayOutputStream delimited = new ByteArrayOutputStream();
+            new EncodedMessage(msg).writeDelimitedTo(delimited);
+            assertArrayEquals(expected.toByteArray(), delimited.toByteArray());
+
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            new EncodedMessage(msg).writeTo(plain);
+            assertArrayEquals(msg.toByteArray(), plain.toByteArray());
+        }
+    }
+
+    @Test
+    public void readRawVarint32MatchesProtobufEncoding() throws IOException {
+        Random rnd = new Random(1);
+        List<Integer> values = new ArrayList<Integer>(Arrays.asList(0, 1, 127, 128, 16383, 16384, Framing.MAX_MESSAGE_SIZE, Integer.MAX_VALUE));
+        for (int i = 0; i < 1000; i++) {
+            values.add(rnd.nextInt(Integer.MAX_VALUE));
+        }
+        for (int value : values) {
+            byte[] prefix = new byte[CodedOutputStream.computeRawVarint32Size(value)];
+            CodedOutputStream out = CodedOutputStream.newInstance(prefix);
+            out.writeRawVarint32(value);
+            out.flush();
+            assertTrue(prefix.length <= Framing.MAX_PREFIX_SIZE);
+
+            ByteBuffer buffer = ByteBuffer.wrap(prefix);
+            assertEquals(value, Framing.readRawVarint32(buffer));
+            assertFalse(buffer.hasRemaining());
+
+            // A prefix which has not arrived whole yet.
+            assertEquals(-1, Framing.readRawVarint32(ByteBuffer.wrap(prefix, 0, prefix.length - 1)));
+        }
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void readRawVarint32RejectsNegativeLength() throws IOException {
+        byte[] prefix = new byte[Framing.MAX_PREFIX_SIZE];
+        CodedOutputStream out = CodedOutputStream.newInstance(prefix);
+        out.writeRawVarint32(-1);
+        Framing.readRawVarint32(ByteBuffer.wrap(prefix));
+    }
+
+    @Test
+    public void acceptAnswersPreamble() throws IOException {
+        PushbackInputStream in = new PushbackInputStream(new ByteArrayInputStream(Framing.PREAMBLE));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(Framing.accept(in, out));
+        assertArrayEquals(new byte[]{Framing.ACK}, out.toByteArray());
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void acceptLeavesMessageOfOriginalFormatUnread() throws IOException {
+        Message.Msg msg = message(3, 10);
+        PushbackInputStream in = new PushbackInputStream(new ByteArrayInputStream(msg.toByteArray()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(Framing.accept(in, out));
+        assertEquals(0, out.size());
+        assertEquals(msg, Message.Msg.parseFrom(in));
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void acceptRejectsUnknownPreamble() throws IOException {
+        byte[] preamble = Framing.PREAMBLE.clone();
+        preamble[3] = 0x02;
+        Framing.accept(new PushbackInputStream(new ByteArrayInputStream(preamble)), new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void framedMessagesThroughSelectorSockets() throws Exception {
+        BlockingQueue<Message.Msg> received = new LinkedBlockingQueue<Message.Msg>();
+        int port = freePort();
+        MessageTransport transport = listen(new SelectorSockets(port), received);
+        try {
+            sendAndReceive(port, true, received);
+        } finally {
+            transport.stop();
+        }
+    }
+
+    @Test
+    public void messagesOfOriginalFormatThroughSelectorSockets() throws Exception {
+        BlockingQueue<Message.Msg> received = new LinkedBlockingQueue<Message.Msg>();
+        int port = freePort();
+        MessageTransport transport = listen(new SelectorSockets(port), received);
+        try {
+            sendAndReceive(port, false, received);
+        } finally {
+            transport.stop();
+        }
+    }
+
+    @Test
+    public void framedMessagesThroughSockets() throws Exception {
+        BlockingQueue<Message.Msg> received = new LinkedBlockingQueue<Message.Msg>();
+        int port = freePort();
+        MessageTransport transport = listen(new Sockets(port), received);
+        try {
+            sendAndReceive(port, true, received);
+        } finally {
+            transport.stop();
+        }
+    }
+
+    @Test
+    public void messagesOfOriginalFormatThroughSockets() throws Exception {
+        BlockingQueue<Message.Msg> received = new LinkedBlockingQueue<Message.Msg>();
+        int port = freePort();
+        MessageTransport transport = listen(new Sockets(port), received);
+        try {
+            sendAndReceive(port, false, received);
+        } finally {
+            transport.stop();
+        }
+    }
+
+    /**
+     * A receiver reading one message per connection never answers the preamble,
+     * the sender falls back to the original format after the handshake timeout.
+     */
+    @Test
+    public void fallbackToReceiverWithoutFraming() throws Exception {
+        final BlockingQueue<Message.Msg> received = new LinkedBlockingQueue<Message.Msg>();
+        final ServerSocket server = new ServerSocket(0);
+        Thread receiver = new Thread() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        try {
+                            received.add(Message.Msg.parseFrom(readAll(socket.getInputStream())));
+                        } catch (InvalidProtocolBufferException e) {
+                            // The preamble is not a message, the receiver drops the connection.
+                        } finally {
+                            socket.close();
+                        }
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        receiver.setDaemon(true);
+        receiver.start();
+        try {
+            PeerConnection connection = new PeerConnection(server.getLocalPort());
+            assertFalse(connection.isFramed());
+            for (int i = 0; i < 3; i++) {
+                Message.Msg msg = message(i, 100 * i);
+                connection.send(new EncodedMessage(msg));
+                assertEquals(msg, received.poll(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+            }
+            connection.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * A participant who has sent a message in the original format receives messages in the original format
+     * from the first connection, without the offer of the framed format.
+     */
+    @Test
+    public void noOfferToSenderWithoutFraming() throws Exception {
+        BlockingQueue<Message.Msg> received = new LinkedBlockingQueue<Message.Msg>();
+        int port = freePort();
+        MessageTransport transport = listen(new SelectorSockets(port), received);
+        ServerSocket server = new ServerSocket(0);
+        try {
+            server.setSoTimeout(RECEIVE_TIMEOUT);
+            Message.Msg msg = message(9, 10);
+            connect(port, false).send(new EncodedMessage(msg));
+            assertEquals(msg, received.poll(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+
+            transport.setPorts(Collections.singletonMap(9, server.getLocalPort()));
+            Message.Msg reply = message(1, 10);
+            transport.sendMsgTo(reply, 9);
+            Socket socket = server.accept();
+            try {
+                assertEquals(reply, Message.Msg.parseFrom(readAll(socket.getInputStream())));
+            } finally {
+                socket.close();
+            }
+        } finally {
+            server.close();
+            transport.stop();
+        }
+    }
+
+    /**
+     * Sends messages of various sizes, including ones larger than the initial buffer of SelectorSockets,
+     * and checks that they arrive unchanged, through a framed connection also in order.
+     */
+    private static void sendAndReceive(int port, boolean offerFraming, BlockingQueue<Message.Msg> received) throws Exception {
+        PeerConnection connection = connect(port, offerFraming);
+        assertEquals(offerFraming, connection.isFramed());
+        List<Message.Msg> sent = new ArrayList<Message.Msg>();
+        for (int i = 0; i < 20; i++) {
+            Message.Msg msg = message(i, i % 5 == 0 ? 40000 * i : 10 * i);
+            sent.add(msg);
+            connection.send(new EncodedMessage(msg));
+        }
+        List<Message.Msg> arrived = new ArrayList<Message.Msg>();
+        for (int i = 0; i < sent.size(); i++) {
+            Message.Msg msg = received.poll(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS);
+            assertNotNull(msg);
+            arrived.add(msg);
+        }
+        if (offerFraming) {
+            assertEquals(sent, arrived);
+        } else {
+            // Every message has its own connection, so they may be delivered in any order.
+            assertEquals(new HashSet<Message.Msg>(sent), new HashSet<Message.Msg>(arrived));
+        }
+        connection.close();
+    }
+
+    private static MessageTransport listen(MessageTransport transport, final BlockingQueue<Message.Msg> received) {
+        transport.setMessageListener(new MessageListener() {
+            @Override
+            public void messageReceived(Message.Msg message) {
+                received.add(message);
+            }
+        });
+        return transport;
+    }
+
+    /**
+     * Connects to the listener, which binds its port in its own thread.
+     */
+    private static PeerConnection connect(int port, boolean offerFraming) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                PeerConnection connection = new PeerConnection(port);
+                if (offerFraming) {
+                    return connection;
+                }
+                // The port is bound now, the connection of the original format is opened for every message.
+                connection.close();
+                return new PeerConnection(port, false);
+            } catch (ConnectException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param senderId
+     * @param size - number of bytes of the public key in the message
+     * @return a KeyAgreementPart2 message
+     */
+    static Message.Msg message(int senderId, int size) {
+        byte[] key = new byte[size];
+        new Random(senderId).nextBytes(key);
+        return Message.Msg.newBuilder()
+                .setSenderId(senderId)
+                .setType(Message.Msg.Type.KEYAGREEMENTPART2)
+                .setKeyAgreementPart2(Message.Msg.KeyAgreementPart2.newBuilder()
+                        .setPeriod(senderId + 1)
+                        .setPubKeyR(ByteString.copyFrom(key)))
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Checks the well-known groups and the bit lengths of generated parameters.
+ */
+public class GroupParametersProviderTest {
+
+    private static final int CERTAINTY = 20;
+
+    @Test
+    public void wellKnownGroupsAreValid() {
+        for (String name : new String[]{"modp1024", "modp2048", "modp1024s160", "modp2048s224", "modp2048s256"}) {
+            assertTrue(name, GroupParametersProvider.wellKnownGroup(name).isValid(CERTAINTY));
+        }
+    }
+
+    @Test
+    public void shortSubgroupOrders() {
+        assertEquals(160, GroupParametersProvider.wellKnownGroup("modp1024s160").getQ().bitLength());
+        assertEquals(224, GroupParametersProvider.wellKnownGroup("modp2048s224").getQ().bitLength());
+        assertEquals(256, GroupParametersProvider.wellKnownGroup("modp2048s256").getQ().bitLength());
+        assertEquals(2048, GroupParametersProvider.wellKnownGroup("modp2048s256").getP().bitLength());
+    }
+
+    @Test
+    public void generatedParametersHaveRequiredBitLengths() {
+        Random rnd = new Random(1);
+        int[][] lengths = {{10, 8}, {18, 16}, {34, 32}, {66, 32}, {128, 64}, {130, 128}};
+        for (int[] bits : lengths) {
+            for (int i = 0; i < 20; i++) {
+                GroupParameters parameters = GroupParametersProvider.generate(bits[0], bits[1], rnd);
+                assertEquals(bits[0], parameters.getP().bitLength());
+                assertEquals(bits[1], parameters.getQ().bitLength());
+                assertTrue(parameters.isValid(CERTAINTY));
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Compares the maps with primitive int keys with java.util.HashMap under random operations.
+ */
+public class IntHashMapTest {
+
+    private static final int OPERATIONS = 20000;
+
+    @Test
+    public void intObjectHashMapMatchesHashMap() {
+        for (int range : new int[]{16, 1000, Integer.MAX_VALUE}) {
+            Random rnd = new Random(range);
+            IntObjectHashMap<String> map = new IntObjectHashMap<String>();
+            Map<Integer, String> expected = new HashMap<Integer, String>();
+            for (int i = 0; i < OPERATIONS; i++) {
+                int key = randomKey(rnd, range);
+                switch (rnd.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        String value = rnd.nextInt(10) == 0 ? null : "v" + i;
+                        assertEquals(expected.put(key, value), map.put(key, value));
+                        break;
+                    case 2:
+                        assertEquals(expected.remove(key), map.remove(key));
+                        break;
+                    default:
+                        assertEquals(expected.get(key), map.get(key));
+                        assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            assertEquals(expected, map);
+            assertEquals(expected, new HashMap<Integer, String>(map));
+            assertEquals(expected, new IntObjectHashMap<String>(expected));
+        }
+    }
+
+    @Test
+    public void intIntHashMapMatchesHashMap() {
+        for (int range : new int[]{16, 1000, Integer.MAX_VALUE}) {
+            Random rnd = new Random(range);
+            IntIntHashMap map = new IntIntHashMap();
+            Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+            for (int i = 0; i < OPERATIONS; i++) {
+                int key = randomKey(rnd, range);
+                int value = rnd.nextInt();
+                switch (rnd.nextInt(5)) {
+                    case 0:
+                        expected.put(key, value);
+                        map.put(key, value);
+                        break;
+                    case 1:
+                        assertEquals(expected.put(key, value), map.put(Integer.valueOf(key), Integer.valueOf(value)));
+                        break;
+                    case 2:
+                        assertEquals(expected.remove(key) != null, map.remove(key));
+                        break;
+                    case 3:
+                        assertEquals(expected.remove(key), map.remove(Integer.valueOf(key)));
+                        break;
+                    default:
+                        Integer current = expected.get(key);
+                        assertEquals(current == null ? -1 : current.intValue(), map.getInt(key, -1));
+                        assertEquals(current, map.get(key));
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            assertEquals(expected, map);
+            assertEquals(expected, new IntIntHashMap(expected));
+        }
+    }
+
+    @Test
+    public void intHashSetMatchesHashSet() {
+        for (int range : new int[]{16, 1000, Integer.MAX_VALUE}) {
+            Random rnd = new Random(range);
+            IntHashSet set = new IntHashSet();
+            Set<Integer> expected = new HashSet<Integer>();
+            for (int i = 0; i < OPERATIONS; i++) {
+                int key = randomKey(rnd, range);
+                switch (rnd.nextInt(3)) {
+                    case 0:
+                        assertEquals(expected.add(key), set.add(key));
+                        break;
+                    case 1:
+                        assertEquals(expected.remove(key), set.remove(key));
+                        break;
+                    default:
+                        assertEquals(expected.contains(key), set.contains(key));
+                }
+                assertEquals(expected.size(), set.size());
+                assertEquals(expected.isEmpty(), set.isEmpty());
+            }
+            assertEquals(expected, set.keySet());
+            assertEquals(expected, toSet(set.keys()));
+            set.clear();
+            assertTrue(set.isEmpty());
+            assertEquals(-1, set.nextSlot(-1));
+        }
+    }
+
+    @Test
+    public void removeWhileIterating() {
+        Random rnd = new Random(1);
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<Integer>();
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                int key = randomKey(rnd, 500);
+                map.put(key, Integer.valueOf(i));
+                expected.put(key, i);
+            }
+            // Through the Map interface.
+            Iterator<Map.Entry<Integer, Integer>> entries = map.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Integer, Integer> entry = entries.next();
+                if (entry.getKey() % 3 == 0) {
+                    entries.remove();
+                    expected.remove(entry.getKey());
+                } else if (entry.getKey() % 3 == 1) {
+                    entry.setValue(entry.getValue() + 1);
+                    expected.put(entry.getKey(), expected.get(entry.getKey()) + 1);
+                }
+            }
+            assertEquals(expected, map);
+            // Through the slots.
+            for (int slot = map.nextSlot(-1); slot >= 0; slot = map.nextSlot(slot)) {
+                if (rnd.nextBoolean()) {
+                    expected.remove(map.keyAt(slot));
+                    map.remove(map.keyAt(slot));
+                }
+            }
+            assertEquals(expected, map);
+        }
+    }
+
+    @Test
+    public void slotsVisitEveryEntryOnce() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        Random rnd = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            int key = rnd.nextInt();
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        Map<Integer, Integer> visited = new HashMap<Integer, Integer>();
+        for (int slot = map.nextSlot(-1); slot >= 0; slot = map.nextSlot(slot)) {
+            assertNull(visited.put(map.keyAt(slot), map.intValueAt(slot)));
+        }
+        assertEquals(expected, visited);
+    }
+
+    private static int randomKey(Random rnd, int range) {
+        if (range == Integer.MAX_VALUE) {
+            int choice = rnd.nextInt(20);
+            return choice == 0 ? Integer.MIN_VALUE : choice == 1 ? Integer.MAX_VALUE : rnd.nextInt();
+        }
+        return rnd.nextInt(range) - range / 2;
+    }
+
+    private static Set<Integer> toSet(int[] keys) {
+        Set<Integer> set = new HashSet<Integer>();
+        for (int key : keys) {
+            assertTrue(set.add(key));
+        }
+        return set;
+    }
+}
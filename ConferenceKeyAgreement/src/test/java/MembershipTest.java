@@ -0,0 +1,188 @@
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Tests of membership changes decided by the coordinator, run by several participants on local ports.
+ */
+public class MembershipTest {
+
+    private static final long WINDOW = 300;
+
+    private TestConference conference;
+
+    @After
+    public void stop() {
+        if (conference != null) {
+            conference.stop();
+        }
+    }
+
+    @Test
+    public void initialKeyAgreement() throws Exception {
+        conference = new TestConference(0, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        conference.start(Arrays.asList(1, 2, 3, 4));
+        assertEquals(1, conference.period(1));
+    }
+
+    /**
+     * A leave and an add coming together are decided by the coordinator for one period.
+     */
+    @Test
+    public void changesInsideWindowShareOnePeriod() throws Exception {
+        conference = new TestConference(WINDOW, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4, 5));
+        conference.start(members);
+        int period = conference.period(1);
+        BigInteger key = conference.key(1);
+
+        conference.node(6);
+        conference.get(5).leaveConference();
+        conference.get(3).addParticipant(6, conference.port(6));
+        members.remove(Integer.valueOf(5));
+        members.add(6);
+        conference.awaitAgreement(members);
+        conference.awaitLeft(5);
+
+        assertEquals(period + 1, conference.period(1));
+        assertFalse(key.equals(conference.key(1)));
+    }
+
+    /**
+     * A leave and an add coming shortly before and after the window opened by the leave closes.
+     * Either way all the members, including the new one, agree on a key and the leaving member is excluded.
+     */
+    @Test
+    public void changesOnEitherSideOfWindowBoundary() throws Exception {
+        conference = new TestConference(WINDOW, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4, 5));
+        conference.start(members);
+        int next = 6;
+        for (long delay : new long[]{WINDOW - 20, WINDOW + 20, WINDOW, WINDOW + 100}) {
+            int period = conference.period(1);
+            int leaving = members.get(members.size() - 1);
+            conference.node(next);
+            conference.get(leaving).leaveConference();
+            Thread.sleep(delay);
+            conference.get(members.get(1)).addParticipant(next, conference.port(next));
+            members.remove(Integer.valueOf(leaving));
+            members.add(next);
+            conference.awaitAgreement(members);
+            conference.awaitLeft(leaving);
+            int periods = conference.period(1) - period;
+            assertTrue("Changes took " + periods + " periods", periods == 1 || periods == 2);
+            next++;
+        }
+    }
+
+    /**
+     * Changes further apart than the window are decided for two periods.
+     */
+    @Test
+    public void changesAfterWindowTakeNextPeriod() throws Exception {
+        conference = new TestConference(WINDOW, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4));
+        conference.start(members);
+        int period = conference.period(1);
+
+        conference.node(5);
+        conference.get(4).leaveConference();
+        Thread.sleep(WINDOW + 1000);
+        assertEquals(period + 1, conference.period(1));
+        conference.get(2).addParticipant(5, conference.port(5));
+        members.remove(Integer.valueOf(4));
+        members.add(5);
+        conference.awaitAgreement(members);
+        assertEquals(period + 2, conference.period(1));
+    }
+
+    /**
+     * Without the window every change is decided as soon as the coordinator learns about it.
+     */
+    @Test
+    public void changesWithoutWindow() throws Exception {
+        conference = new TestConference(0, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4, 5));
+        conference.start(members);
+        int next = 6;
+        for (long delay : new long[]{0, 50, 150}) {
+            int leaving = members.get(members.size() - 1);
+            conference.node(next);
+            conference.get(leaving).leaveConference();
+            Thread.sleep(delay);
+            conference.get(members.get(1)).addParticipant(next, conference.port(next));
+            members.remove(Integer.valueOf(leaving));
+            members.add(next);
+            conference.awaitAgreement(members);
+            conference.awaitLeft(leaving);
+            next++;
+        }
+    }
+
+    /**
+     * When the coordinator leaves, the lowest remaining member decides the following periods.
+     */
+    @Test
+    public void coordinatorLeaves() throws Exception {
+        conference = new TestConference(WINDOW, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4));
+        conference.start(members);
+
+        conference.get(1).leaveConference();
+        members.remove(Integer.valueOf(1));
+        conference.awaitAgreement(members);
+        conference.awaitLeft(1);
+
+        conference.node(5);
+        conference.get(4).addParticipant(5, conference.port(5));
+        members.add(5);
+        conference.awaitAgreement(members);
+    }
+
+    /**
+     * Several members leaving at the same time, including the coordinator, are excluded together.
+     */
+    @Test
+    public void severalMembersLeave() throws Exception {
+        conference = new TestConference(WINDOW, KeyAgreementEngine.DEFAULT_JOIN_TIMEOUT);
+        List<Integer> members = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        conference.start(members);
+        int period = conference.period(2);
+
+        for (Integer leaving : Arrays.asList(1, 3, 6)) {
+            conference.get(leaving).leaveConference();
+            members.remove(leaving);
+        }
+        conference.awaitAgreement(members);
+        for (Integer leaving : Arrays.asList(1, 3, 6)) {
+            conference.awaitLeft(leaving);
+        }
+        assertEquals(period + 1, conference.period(2));
+    }
+
+    /**
+     * Joining message of a participant who does not send the period of his invitation is still accepted.
+     */
+    @Test
+    public void joiningWithoutPeriodParses() throws Exception {
+        Message.Msg joining = Message.Msg.newBuilder()
+                .setSenderId(7)
+                .setType(Message.Msg.Type.JOINING)
+                .setJoining(Message.Msg.Joining.newBuilder()
+                        .setPort(5000)
+                        .setKeyAgreementPart1(Message.Msg.KeyAgreementPart1.newBuilder()
+                                .setPubKeyY(ByteString.copyFrom(BigInteger.TEN.toByteArray()))))
+                .build();
+        Message.Msg parsed = Message.Msg.parseFrom(joining.toByteArray());
+        assertEquals(joining, parsed);
+        assertFalse(parsed.getJoining().hasPeriod());
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Compares simultaneous multi-exponentiation with a product of powers computed by BigInteger.modPow.
+ */
+public class MultiExponentiationTest {
+
+    private static final BigInteger P = GroupParametersProvider.wellKnownGroup("modp1024").getP();
+
+    @Test
+    public void productMatchesModPow() {
+        Random rnd = new Random(1);
+        BarrettReduction reduction = new BarrettReduction(P);
+        for (int size : new int[]{1, 2, 6, 21}) {
+            for (int bits : new int[]{1, 5, 8, 20, 64, 100, 300, 1023, 2000}) {
+                List<BigInteger> bases = randomBases(size, rnd);
+                List<BigInteger> exponents = new ArrayList<BigInteger>();
+                for (int i = 0; i < size; i++) {
+                    exponents.add(new BigInteger(bits, rnd));
+                }
+                assertEquals(product(bases, exponents), MultiExponentiation.product(bases, exponents, reduction));
+            }
+        }
+    }
+
+    /**
+     * Exponents of different lengths, as z^j of the verification.
+     */
+    @Test
+    public void productOfPeriodPowers() {
+        BigInteger q = P.shiftRight(1);
+        BarrettReduction reduction = new BarrettReduction(P);
+        List<BigInteger> bases = randomBases(21, new Random(2));
+        for (int z = 1; z <= 20; z++) {
+            List<BigInteger> exponents = new ArrayList<BigInteger>();
+            BigInteger power = BigInteger.ONE;
+            for (int j = 0; j < bases.size(); j++) {
+                exponents.add(power);
+                power = power.multiply(BigInteger.valueOf(z)).mod(q);
+            }
+            assertEquals(product(bases, exponents), MultiExponentiation.product(bases, exponents, reduction));
+        }
+    }
+
+    @Test
+    public void zeroExponentsAndSpecialBases() {
+        BarrettReduction reduction = new BarrettReduction(P);
+        List<BigInteger> bases = new ArrayList<BigInteger>();
+        bases.add(BigInteger.ZERO);
+        bases.add(BigInteger.ONE);
+        bases.add(P.subtract(BigInteger.ONE));
+        bases.add(P.add(BigInteger.valueOf(3)));
+        bases.add(BigInteger.valueOf(-5));
+        for (int e = 0; e < 40; e++) {
+            List<BigInteger> exponents = new ArrayList<BigInteger>();
+            for (int i = 0; i < bases.size(); i++) {
+                exponents.add(BigInteger.valueOf(e == 0 ? 0 : e + i));
+            }
+            assertEquals(product(bases, exponents), MultiExponentiation.product(bases, exponents, reduction));
+        }
+        List<BigInteger> empty = Collections.emptyList();
+        assertEquals(BigInteger.ONE, MultiExponentiation.product(empty, empty, reduction));
+    }
+
+    private static List<BigInteger> randomBases(int size, Random rnd) {
+        List<BigInteger> bases = new ArrayList<BigInteger>();
+        for (int i = 0; i < size; i++) {
+            bases.add(new BigInteger(P.bitLength(), rnd).mod(P));
+        }
+        return bases;
+    }
+
+    /**
+     * @return product of bases.get(i)^exponents.get(i) mod P computed by modPow
+     */
+    private static BigInteger product(List<BigInteger> bases, List<BigInteger> exponents) {
+        BigInteger product = BigInteger.ONE;
+        for (int i = 0; i < bases.size(); i++) {
+            product = product.multiply(bases.get(i).modPow(exponents.get(i), P)).mod(P);
+        }
+        return product;
+    }
+}
@@ -0,0 +1,307 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Tests of the verification of sub-keys and of the conference key computed from them.
+ */
+public class ParticipantDataTest {
+
+    private static final int PERIODS = 5;
+
+    @Test
+    public void batchAndSeparateVerificationAcceptValidSubKeys() {
+        List<ParticipantData> participants = TestParticipants.create(4, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        for (int period = 1; period <= PERIODS; period++) {
+            TestParticipants.rekey(participants, period);
+            BigInteger key = null;
+            for (ParticipantData data : participants) {
+                assertTrue(data.isPart2Complete());
+                data.decryptSubKeys();
+                for (boolean batch : new boolean[]{false, true}) {
+                    data.setBatchVerification(batch);
+                    assertTrue(data.verifySubKeys());
+                    assertNull(data.getInvalidParticipant());
+                }
+                BigInteger participantKey = data.computeConferenceKey();
+                assertTrue(key == null || key.equals(participantKey));
+                key = participantKey;
+            }
+            // The key is the sum of f_i(z) over all the participants, so g^key is the product of their g^f_i(z).
+            BigInteger product = BigInteger.ONE;
+            for (ParticipantData data : participants) {
+                product = product.multiply(TestParticipants.evaluatePublicPolynomial(data, period))
+                        .mod(TestParticipants.GROUP.getP());
+            }
+            assertEquals(product, TestParticipants.GROUP.getG().modPow(key, TestParticipants.GROUP.getP()));
+        }
+    }
+
+    @Test
+    public void invalidSubKeyIsReported() {
+        BigInteger p = TestParticipants.GROUP.getP();
+        List<ParticipantData> participants = TestParticipants.create(4, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        ParticipantData receiver = participants.get(0);
+        ParticipantData sender = participants.get(2);
+        for (boolean batch : new boolean[]{false, true}) {
+            TestParticipants.rekey(participants, 1);
+            // The sender's message is replaced by one whose sub-key decrypts to s * g instead of s.
+            BigInteger encrypted = sender.getEncryptedSubKeys().get(receiver.getId());
+            assertTrue(receiver.part2Received(sender.getId(), 1, sender.getPublicKeyR(),
+                    encrypted.multiply(receiver.getG()).mod(p)));
+            receiver.decryptSubKeys();
+            receiver.setBatchVerification(batch);
+            assertFalse(receiver.verifySubKeys());
+            assertEquals(Integer.valueOf(sender.getId()), receiver.getInvalidParticipant());
+        }
+    }
+
+    @Test
+    public void polynomialOutsideSubgroupIsRejected() {
+        BigInteger p = TestParticipants.GROUP.getP();
+        for (boolean batch : new boolean[]{false, true}) {
+            List<ParticipantData> participants = TestParticipants.create(3, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+            ParticipantData receiver = participants.get(0);
+            ParticipantData sender = participants.get(1);
+            // -C_0 lies outside the subgroup of order q, the batch check would accept it for half of the random exponents.
+            List<BigInteger> polynomial = new ArrayList<BigInteger>(sender.getPublicPolynomial());
+            polynomial.set(0, p.subtract(polynomial.get(0)));
+            receiver.getParticipants().get(sender.getId()).setPublicPolynomial(polynomial);
+            TestParticipants.rekey(participants, 1);
+            receiver.decryptSubKeys();
+            receiver.setBatchVerification(batch);
+            assertFalse(receiver.verifySubKeys());
+            assertEquals(Integer.valueOf(sender.getId()), receiver.getInvalidParticipant());
+        }
+    }
+
+    @Test
+    public void generatorOutsideSubgroupIsRejected() {
+        BigInteger p = TestParticipants.GROUP.getP();
+        List<ParticipantData> participants = TestParticipants.create(3, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        TestParticipants.rekey(participants, 1);
+        ParticipantData receiver = participants.get(0);
+        receiver.decryptSubKeys();
+        receiver.setG(p.subtract(receiver.getG()));
+        for (boolean batch : new boolean[]{false, true}) {
+            receiver.setBatchVerification(batch);
+            assertFalse(receiver.verifySubKeys());
+            assertNull(receiver.getInvalidParticipant());
+        }
+    }
+
+    @Test
+    public void verificationWithAndWithoutPolynomialTablesAgrees() {
+        BigInteger p = TestParticipants.GROUP.getP();
+        for (int limit : new int[]{0, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT}) {
+            List<ParticipantData> participants = TestParticipants.create(3, PERIODS, limit);
+            ParticipantData receiver = participants.get(0);
+            ParticipantData sender = participants.get(1);
+            for (int period = 1; period <= PERIODS; period++) {
+                TestParticipants.rekey(participants, period);
+                receiver.decryptSubKeys();
+                assertTrue(receiver.verifySubKeys());
+                BigInteger encrypted = sender.getEncryptedSubKeys().get(receiver.getId());
+                receiver.part2Received(sender.getId(), period, sender.getPublicKeyR(),
+                        encrypted.multiply(receiver.getG()).mod(p));
+                receiver.decryptSubKeys();
+                assertFalse(receiver.verifySubKeys());
+                assertEquals(Integer.valueOf(sender.getId()), receiver.getInvalidParticipant());
+            }
+            PublicData data = receiver.getParticipants().get(sender.getId());
+            assertEquals(limit > 0, data.getPolynomialPowers() != null);
+        }
+    }
+
+    @Test
+    public void polynomialTablesMatchModPow() {
+        BigInteger p = TestParticipants.GROUP.getP();
+        BigInteger q = TestParticipants.GROUP.getQ();
+        int periods = 20;
+        List<ParticipantData> participants = TestParticipants.create(2, periods, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        PublicData data = participants.get(0).getParticipants().get(2);
+        participants.get(0).precomputePolynomialPowers(data);
+        List<FixedBaseExponentiation> powers = data.getPolynomialPowers();
+        assertEquals(periods + 1, powers.size());
+        for (int z = 1; z <= periods; z++) {
+            for (int j = 0; j <= periods; j++) {
+                BigInteger exponent = BigInteger.valueOf(z).pow(j).mod(q);
+                assertEquals(data.getPublicPolynomial().get(j).modPow(exponent, p), powers.get(j).pow(exponent));
+            }
+        }
+        // A new polynomial drops the tables of the old one.
+        data.setPublicPolynomial(participants.get(0).getPublicPolynomial());
+        assertNull(data.getPolynomialPowers());
+    }
+
+    @Test
+    public void polynomialTablesRespectLimit() {
+        List<ParticipantData> participants = TestParticipants.create(2, 20, 100);
+        ParticipantData receiver = participants.get(0);
+        PublicData data = receiver.getParticipants().get(2);
+        receiver.precomputePolynomialPowers(data);
+        assertNull(data.getPolynomialPowers());
+        TestParticipants.rekey(participants, 3);
+        receiver.decryptSubKeys();
+        assertTrue(receiver.verifySubKeys());
+        assertNull(data.getPolynomialPowers());
+    }
+
+    @Test
+    public void part2ReceivedKeepsOnlyBufferedPeriodsFromKnownSenders() {
+        List<ParticipantData> participants = TestParticipants.create(3, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        ParticipantData receiver = participants.get(0);
+        receiver.setCurrentPeriod(2);
+        BigInteger r = BigInteger.TEN;
+        assertFalse(receiver.part2Received(9, 2, r, BigInteger.ONE));
+        assertFalse(receiver.part2Received(2, 1, r, BigInteger.ONE));
+        assertFalse(receiver.part2Received(2, 2 + PublicData.PART2_BUFFER_SIZE, r, BigInteger.ONE));
+        for (int period = 3; period < 2 + PublicData.PART2_BUFFER_SIZE; period++) {
+            assertTrue(receiver.part2Received(2, period, r, BigInteger.ONE));
+        }
+        assertFalse(receiver.isPart2Complete());
+
+        // Messages for later periods count when their period starts.
+        assertTrue(receiver.part2Received(3, 3, r, BigInteger.ONE));
+        receiver.updatePeriod();
+        assertTrue(receiver.isPart2Complete());
+        receiver.updatePeriod();
+        assertFalse(receiver.isPart2Complete());
+        assertTrue(receiver.part2Received(3, 4, r, BigInteger.ONE));
+        assertTrue(receiver.isPart2Complete());
+    }
+
+    @Test
+    public void missingSubKeyIsReported() {
+        List<ParticipantData> participants = TestParticipants.create(3, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        ParticipantData receiver = participants.get(0);
+        ParticipantData sender = participants.get(2);
+        for (boolean batch : new boolean[]{false, true}) {
+            TestParticipants.rekey(participants, 1);
+            assertTrue(receiver.part2Received(sender.getId(), 1, sender.getPublicKeyR(), null));
+            receiver.decryptSubKeys();
+            receiver.setBatchVerification(batch);
+            assertFalse(receiver.verifySubKeys());
+            assertEquals(Integer.valueOf(sender.getId()), receiver.getInvalidParticipant());
+        }
+    }
+
+    /**
+     * Faster participants send messages for the next period before the receiver has finished the current one.
+     */
+    @Test
+    public void messagesForNextPeriodDoNotDisturbCurrentOne() {
+        List<ParticipantData> participants = TestParticipants.create(3, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        ParticipantData receiver = participants.get(0);
+        TestParticipants.rekey(participants, 1);
+        List<ParticipantData> others = participants.subList(1, participants.size());
+        for (ParticipantData other : others) {
+            other.setCurrentPeriod(2);
+            other.evaluateSecretPolynomial();
+            other.encryptSubKeys();
+            assertTrue(receiver.part2Received(other.getId(), 2, other.getPublicKeyR(),
+                    other.getEncryptedSubKeys().get(receiver.getId())));
+        }
+        receiver.decryptSubKeys();
+        assertTrue(receiver.verifySubKeys());
+
+        receiver.updatePeriod();
+        assertTrue(receiver.isPart2Complete());
+        receiver.evaluateSecretPolynomial();
+        receiver.decryptSubKeys();
+        assertTrue(receiver.verifySubKeys());
+    }
+
+    /**
+     * With eager decryption, sub-keys buffered for the next period are decrypted as soon as that period starts.
+     */
+    @Test
+    public void bufferedSubKeysAreDecryptedWhenPeriodStarts() {
+        List<ParticipantData> participants = TestParticipants.create(3, PERIODS, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT);
+        ParticipantData receiver = participants.get(0);
+        receiver.setEagerDecryption(true);
+        TestParticipants.rekey(participants, 1);
+        List<ParticipantData> others = participants.subList(1, participants.size());
+        for (ParticipantData other : others) {
+            other.setCurrentPeriod(2);
+            other.evaluateSecretPolynomial();
+            other.encryptSubKeys();
+            assertTrue(receiver.part2Received(other.getId(), 2, other.getPublicKeyR(),
+                    other.getEncryptedSubKeys().get(receiver.getId())));
+            receiver.decryptSubKey(other.getId());
+            assertTrue(receiver.getParticipants().get(other.getId()).getDecryptedPeriod() != 2);
+        }
+        receiver.decryptSubKeys();
+        assertTrue(receiver.verifySubKeys());
+
+        receiver.updatePeriod();
+        receiver.decryptBufferedSubKeys();
+        for (ParticipantData other : others) {
+            PublicData data = receiver.getParticipants().get(other.getId());
+            assertEquals(2, data.getDecryptedPeriod());
+            assertTrue(data.isSubKeyValid());
+        }
+        receiver.evaluateSecretPolynomial();
+        receiver.decryptSubKeys();
+        assertTrue(receiver.verifySubKeys());
+    }
+
+    /**
+     * The thread generating ephemeral keys ends when the pool is replaced or the participant shut down.
+     */
+    @Test
+    public void replacedEphemeralKeyPoolIsShutDown() throws InterruptedException {
+        ParticipantData data = TestParticipants.create(2, PERIODS, 0).get(0);
+        int threads = countThreads("ephemeral-keys");
+        for (int size = 1; size <= 3; size++) {
+            data.setEphemeralKeyPoolSize(size);
+            data.refillEphemeralKeys();
+        }
+        data.shutdown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countThreads("ephemeral-keys") > threads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(countThreads("ephemeral-keys") <= threads);
+    }
+
+    /**
+     * The verifying threads end when the participant is shut down.
+     */
+    @Test
+    public void computationThreadsAreShutDown() throws InterruptedException {
+        List<ParticipantData> participants = TestParticipants.create(3, PERIODS, 0);
+        ParticipantData receiver = participants.get(0);
+        int threads = countThreads("key-computation");
+        receiver.setComputationThreads(3);
+        TestParticipants.rekey(participants, 1);
+        receiver.decryptSubKeys();
+        assertTrue(receiver.verifySubKeys());
+        receiver.shutdown();
+        assertEquals(1, receiver.getComputationThreads());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countThreads("key-computation") > threads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(countThreads("key-computation") <= threads);
+    }
+
+    /**
+     * @param name - name of the threads
+     * @return number of live threads with given name
+     */
+    private static int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Zuzana Melsova
+ * Compares the buffer of keyAgreementPart2 data with a map keeping the latest message of each buffered period.
+ */
+public class PublicDataTest {
+
+    @Test
+    public void bufferMatchesMapOfLatestPeriods() {
+        Random rnd = new Random(1);
+        PublicData data = new PublicData();
+        // Messages kept in the map by period, the buffer keeps the latest period of each residue.
+        Map<Integer, BigInteger[]> expected = new HashMap<Integer, BigInteger[]>();
+        int latest = 0;
+        for (int i = 0; i < 5000; i++) {
+            int period = Math.max(0, latest + rnd.nextInt(2 * PublicData.PART2_BUFFER_SIZE + 2) - PublicData.PART2_BUFFER_SIZE);
+            BigInteger r = BigInteger.valueOf(rnd.nextInt(1000));
+            BigInteger s = rnd.nextInt(5) == 0 ? null : BigInteger.valueOf(i);
+            boolean accepted = period > 0 && !newerWithSameResidue(expected, period);
+            assertEquals(accepted, data.savePart2(period, r, s));
+            if (accepted) {
+                expected.put(period, new BigInteger[]{r, s});
+                latest = Math.max(latest, period);
+            }
+            assertEquals(latest, data.getPeriod());
+            for (int p = latest - 2 * PublicData.PART2_BUFFER_SIZE; p <= latest + 1; p++) {
+                BigInteger[] message = expected.get(p);
+                boolean kept = p > 0 && message != null && !newerWithSameResidue(expected, p);
+                assertEquals(kept, data.hasPart2(p));
+                assertEquals(kept ? message[0] : null, data.getPublicKeyR(p));
+                assertEquals(kept ? message[1] : null, data.getEncryptedSubKey(p));
+            }
+        }
+    }
+
+    @Test
+    public void laterPeriodsDoNotOverwriteCurrentOne() {
+        PublicData data = new PublicData();
+        for (int period = 5; period < 5 + PublicData.PART2_BUFFER_SIZE; period++) {
+            assertTrue(data.savePart2(period, BigInteger.valueOf(period), BigInteger.valueOf(10 * period)));
+        }
+        for (int period = 5; period < 5 + PublicData.PART2_BUFFER_SIZE; period++) {
+            assertEquals(BigInteger.valueOf(period), data.getPublicKeyR(period));
+            assertEquals(BigInteger.valueOf(10 * period), data.getEncryptedSubKey(period));
+        }
+        // The period PART2_BUFFER_SIZE periods back is replaced, an older one is not accepted any more.
+        assertTrue(data.savePart2(5 + PublicData.PART2_BUFFER_SIZE, BigInteger.ONE, BigInteger.ONE));
+        assertFalse(data.hasPart2(5));
+        assertFalse(data.savePart2(5, BigInteger.ONE, BigInteger.ONE));
+        assertFalse(data.savePart2(0, BigInteger.ONE, BigInteger.ONE));
+    }
+
+    private static boolean newerWithSameResidue(Map<Integer, BigInteger[]> messages, int period) {
+        for (int other : messages.keySet()) {
+            if (other > period && other % PublicData.PART2_BUFFER_SIZE == period % PublicData.PART2_BUFFER_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author Zuzana Melsova
+ * Participants running the whole protocol on local ports, each with its own state engine and SelectorSockets.
+ * All of them use the well-known group modp1024.
+ */
+public class TestConference {
+
+    // Maximal time in milliseconds to wait for the members to agree on a key.
+    private static final long AGREEMENT_TIMEOUT = 20000;
+
+    // Time in milliseconds for which the agreement has to last, so that no re-keying is in progress.
+    private static final long STABLE_TIME = 300;
+
+    // Maximal time in milliseconds to wait for the answer to a status query.
+    private static final long QUERY_TIMEOUT = 5000;
+
+    private static final int PERIODS = 30;
+
+    private final Map<Integer, KeyAgreement> nodes = new TreeMap<Integer, KeyAgreement>();
+    private final Map<Integer, Integer> ports = new HashMap<Integer, Integer>();
+    private final long membershipWindow;
+    private final long joinTimeout;
+
+    /**
+     * @param membershipWindow - membership window of all the participants in milliseconds
+     * @param joinTimeout - join timeout of all the participants in milliseconds
+     */
+    public TestConference(long membershipWindow, long joinTimeout) {
+        this.membershipWindow = membershipWindow;
+        this.joinTimeout = joinTimeout;
+    }
+
+    /**
+     * Creates a participant listening on a free port, he becomes a member when he is added.
+     * @param id
+     * @return the participant
+     */
+    public KeyAgreement node(int id) throws IOException, InterruptedException {
+        int port = freePort();
+        KeyAgreement node = new KeyAgreement(id, port);
+        KeyAgreementEngine engine = node.getStateEngine();
+        engine.getParticipantData().setNumOfPeriods(PERIODS);
+        engine.getParticipantData().getGroupParametersProvider().setGroup("modp1024");
+        engine.setMembershipWindow(membershipWindow);
+        engine.setJoinTimeout(joinTimeout);
+        nodes.put(id, node);
+        ports.put(id, port);
+        awaitListening(port);
+        return node;
+    }
+
+    /**
+     * Creates participants with given IDs and lets the first of them start the protocol with all of them.
+     * @param ids
+     */
+    public void start(List<Integer> ids) throws IOException, InterruptedException {
+        Map<Integer, Integer> selected = new HashMap<Integer, Integer>();
+        for (Integer id : ids) {
+            node(id);
+            if (!id.equals(ids.get(0))) {
+                selected.put(id, ports.get(id));
+            }
+        }
+        nodes.get(ids.get(0)).startKeyAgreement(selected);
+        awaitAgreement(ids);
+    }
+
+    public KeyAgreement get(int id) {
+        return nodes.get(id);
+    }
+
+    public int port(int id) {
+        return ports.get(id);
+    }
+
+    /**
+     * @param id
+     * @return snapshot of the protocol run taken by the thread processing events of the participant
+     */
+    public KeyAgreementStatus status(int id) throws InterruptedException {
+        try {
+            return nodes.get(id).getStatus().get(QUERY_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new AssertionError(e.getCause());
+        } catch (TimeoutException e) {
+            throw new AssertionError("Participant " + id + " has not answered the status query.");
+        }
+    }
+
+    public int period(int id) throws InterruptedException {
+        return status(id).getPeriod();
+    }
+
+    public BigInteger key(int id) throws InterruptedException {
+        return status(id).getConferenceKey();
+    }
+
+    /**
+     * @param id
+     * @return IDs of the other participants known to the participant
+     */
+    public Set<Integer> participants(int id) throws InterruptedException {
+        return status(id).getParticipants();
+    }
+
+    /**
+     * Waits until exactly given members know each other, are in the same period and have the same key.
+     * @param members
+     */
+    public void awaitAgreement(Collection<Integer> members) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AGREEMENT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (agreed(members)) {
+                Thread.sleep(STABLE_TIME);
+                if (agreed(members)) {
+                    return;
+                }
+            }
+            Thread.sleep(20);
+        }
+        StringBuilder state = new StringBuilder("Members " + members + " have not agreed on a key:");
+        for (Integer id : members) {
+            state.append("\n").append(id).append(": ").append(status(id));
+        }
+        fail(state.toString());
+    }
+
+    /**
+     * Waits until the participant has left and forgotten all the members.
+     * @param id
+     */
+    public void awaitLeft(int id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AGREEMENT_TIMEOUT;
+        while (!participants(id).isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Participant " + id + " has not left, he knows " + participants(id));
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private boolean agreed(Collection<Integer> members) throws InterruptedException {
+        Set<Integer> periods = new HashSet<Integer>();
+        Set<BigInteger> keys = new HashSet<BigInteger>();
+        for (Integer id : members) {
+            KeyAgreementStatus status = status(id);
+            Set<Integer> expected = new HashSet<Integer>(members);
+            expected.remove(id);
+            if (!status.getParticipants().equals(expected)) {
+                return false;
+            }
+            periods.add(status.getPeriod());
+            keys.add(status.getConferenceKey());
+        }
+        return periods.size() == 1 && keys.size() == 1 && !keys.contains(null);
+    }
+
+    /**
+     * Stops all the participants.
+     */
+    public void stop() {
+        for (KeyAgreement node : new ArrayList<KeyAgreement>(nodes.values())) {
+            node.getStateEngine().stop();
+        }
+    }
+
+    static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Waits until the listener thread of a new participant has bound its port.
+     * @param port
+     */
+    private static void awaitListening(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(20);
+            }
+        }
+        fail("Nobody listens on port " + port);
+    }
+}
@@ -0,0 +1,86 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Zuzana Melsova
+ * Participants exchanging protocol data directly, without the state engine and the transport.
+ * All of them use the well-known group modp1024.
+ */
+public final class TestParticipants {
+
+    public static final GroupParameters GROUP = GroupParametersProvider.wellKnownGroup("modp1024");
+
+    private TestParticipants() {
+    }
+
+    /**
+     * Creates participants with IDs 1..n, generates their keys and public polynomials
+     * and gives each of them the public data of all the others.
+     * @param n - number of participants
+     * @param periods - total number of periods
+     * @param polynomialTableLimit - limit of precomputed powers of the public polynomials, 0 disables them
+     * @return the participants
+     */
+    public static List<ParticipantData> create(int n, int periods, int polynomialTableLimit) {
+        List<ParticipantData> participants = new ArrayList<ParticipantData>();
+        for (int id = 1; id <= n; id++) {
+            ParticipantData data = new ParticipantData(id);
+            data.getGroupParametersProvider().setGroup("modp1024");
+            data.generateGroupParameters();
+            data.setNumOfPeriods(periods);
+            data.setPolynomialTableLimit(polynomialTableLimit);
+            data.generatePublicKeyY();
+            data.computePublicPolynomial();
+            participants.add(data);
+        }
+        for (ParticipantData data : participants) {
+            for (ParticipantData other : participants) {
+                if (other != data) {
+                    PublicData publicData = new PublicData(other.getPublicKeyY(), other.getPublicPolynomial());
+                    publicData.setPart1received(true);
+                    data.addParticipant(other.getId(), publicData);
+                }
+            }
+        }
+        return participants;
+    }
+
+    /**
+     * Starts given period for all the participants and delivers everybody's encrypted sub-keys to all the others.
+     * @param participants
+     * @param period
+     */
+    public static void rekey(List<ParticipantData> participants, int period) {
+        for (ParticipantData data : participants) {
+            data.setCurrentPeriod(period);
+            data.evaluateSecretPolynomial();
+            data.encryptSubKeys();
+        }
+        for (ParticipantData data : participants) {
+            for (ParticipantData other : participants) {
+                if (other != data) {
+                    data.part2Received(other.getId(), period, other.getPublicKeyR(),
+                            other.getEncryptedSubKeys().get(data.getId()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes g^f(z) of the participant by the straightforward evaluation of his public polynomial,
+     * the product of C_j^(z^j) mod p using modPow.
+     * @param data
+     * @param period - z
+     * @return g^f(z) mod p
+     */
+    public static BigInteger evaluatePublicPolynomial(ParticipantData data, int period) {
+        BigInteger p = GROUP.getP();
+        List<BigInteger> polynomial = data.getPublicPolynomial();
+        BigInteger product = BigInteger.ONE;
+        for (int j = 0; j < polynomial.size(); j++) {
+            product = product.multiply(polynomial.get(j).modPow(BigInteger.valueOf(period).pow(j), p)).mod(p);
+        }
+        return product;
+    }
+}
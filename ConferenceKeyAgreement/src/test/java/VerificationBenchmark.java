@@ -0,0 +1,209 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * @author Zuzana Melsova
+ * Measures the exponentiations of the protocol against the straightforward BigInteger computations they replace.
+ * Run after mvn test-compile, e.g. with
+ *   mvn -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ *   java -cp target/classes:target/test-classes:$(cat target/classpath.txt) VerificationBenchmark [case ...]
+ * Without arguments all the cases are measured, the group is modp1024.
+ * Every measurement is preceded by a warm-up of the same length.
+ */
+public class VerificationBenchmark {
+
+    private static final GroupParameters GROUP = GroupParametersProvider.wellKnownGroup("modp1024");
+
+    // Keeps the results alive, so that the measured computations are not optimized away.
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        List<String> cases = Arrays.asList(args);
+        if (cases.isEmpty() || cases.contains("exponentiation")) {
+            exponentiation();
+        }
+        if (cases.isEmpty() || cases.contains("multiexponentiation")) {
+            multiExponentiation(5);
+            multiExponentiation(20);
+            multiExponentiation(100);
+        }
+        if (cases.isEmpty() || cases.contains("batch")) {
+            batchVerification(10, 5);
+            batchVerification(40, 5);
+        }
+        if (cases.isEmpty() || cases.contains("tables")) {
+            polynomialTables(10, 5);
+            polynomialTables(10, 20);
+        }
+    }
+
+    /**
+     * g^x mod p for random 1024-bit exponents, modPow against the precomputed table of powers of g.
+     */
+    private static void exponentiation() {
+        final BigInteger p = GROUP.getP();
+        final BigInteger g = GROUP.getG();
+        final int maxBits = GROUP.getQ().bitLength();
+        final BigInteger[] exponents = randomExponents(100, maxBits, new Random(1));
+
+        double table = measure(20, new Runnable() {
+            @Override
+            public void run() {
+                sink = new FixedBaseExponentiation(g, p, maxBits);
+            }
+        });
+        final FixedBaseExponentiation powers = new FixedBaseExponentiation(g, p, maxBits);
+        double modPow = measure(10, new Runnable() {
+            @Override
+            public void run() {
+                for (BigInteger exponent : exponents) {
+                    sink = g.modPow(exponent, p);
+                }
+            }
+        }) / exponents.length;
+        double fixedBase = measure(10, new Runnable() {
+            @Override
+            public void run() {
+                for (BigInteger exponent : exponents) {
+                    sink = powers.pow(exponent);
+                }
+            }
+        }) / exponents.length;
+        report("exponentiation", "g^x, " + maxBits + "-bit x", modPow, "modPow", fixedBase, "fixed base");
+        System.out.println(String.format(Locale.ROOT, "%-16s building the table: %.1f ms", "exponentiation", table));
+    }
+
+    /**
+     * Product of C_j^(z^j) mod p over the values C_j of a public polynomial of degree t with 1023-bit exponents,
+     * a loop of modPow against Straus' method.
+     * @param t - degree of the polynomial
+     */
+    private static void multiExponentiation(int t) {
+        final BigInteger p = GROUP.getP();
+        Random rnd = new Random(2);
+        final List<BigInteger> bases = new ArrayList<BigInteger>();
+        final List<BigInteger> exponents = new ArrayList<BigInteger>();
+        for (int j = 0; j <= t; j++) {
+            bases.add(new BigInteger(p.bitLength(), rnd).mod(p));
+            exponents.add(new BigInteger(GROUP.getQ().bitLength(), rnd));
+        }
+        final BarrettReduction reduction = new BarrettReduction(p);
+        int runs = Math.max(5, 400 / t);
+        double modPow = measure(runs, new Runnable() {
+            @Override
+            public void run() {
+                BigInteger product = BigInteger.ONE;
+                for (int j = 0; j < bases.size(); j++) {
+                    product = product.multiply(bases.get(j).modPow(exponents.get(j), p)).mod(p);
+                }
+                sink = product;
+            }
+        });
+        double straus = measure(runs, new Runnable() {
+            @Override
+            public void run() {
+                sink = MultiExponentiation.product(bases, exponents, reduction);
+            }
+        });
+        report("multiexp", "t = " + t, modPow, "modPow loop", straus, "Straus");
+    }
+
+    /**
+     * Verification of the sub-keys of all the other participants by one participant, separately for each of them
+     * against one combined equation. Separate verification evaluates the public polynomials by Straus' method,
+     * as before the tables of powers of the public polynomials.
+     * @param n - number of participants
+     * @param t - total number of periods
+     */
+    private static void batchVerification(int n, int t) {
+        final ParticipantData receiver = prepareVerification(n, t, 0);
+        double separate = measureVerification(receiver, false);
+        double batch = measureVerification(receiver, true);
+        report("batch", n + " participants, t = " + t, separate, "separately", batch, "in batch");
+    }
+
+    /**
+     * Separate verification of the sub-keys of all the other participants by one participant,
+     * with the public polynomials evaluated by Straus' method against their precomputed tables.
+     * @param n - number of participants
+     * @param t - total number of periods
+     */
+    private static void polynomialTables(int n, int t) {
+        double straus = measureVerification(prepareVerification(n, t, 0), false);
+        double tables = measureVerification(prepareVerification(n, t, ParticipantData.RECOMMENDED_POLYNOMIAL_TABLE_LIMIT), false);
+        report("tables", n + " participants, t = " + t, straus, "Straus", tables, "tables");
+    }
+
+    /**
+     * Creates the participants and delivers their sub-keys for period 2 to the first of them.
+     * @param n - number of participants
+     * @param t - total number of periods
+     * @param polynomialTableLimit
+     * @return the first participant with decrypted sub-keys
+     */
+    private static ParticipantData prepareVerification(int n, int t, int polynomialTableLimit) {
+        List<ParticipantData> participants = TestParticipants.create(n, t, polynomialTableLimit);
+        TestParticipants.rekey(participants, 2);
+        ParticipantData receiver = participants.get(0);
+        receiver.decryptSubKeys();
+        return receiver;
+    }
+
+    /**
+     * @param receiver - participant with decrypted sub-keys
+     * @param batch - true to verify all the sub-keys by one combined equation
+     * @return average time of one verification in milliseconds
+     */
+    private static double measureVerification(final ParticipantData receiver, boolean batch) {
+        receiver.setBatchVerification(batch);
+        return measure(20, new Runnable() {
+            @Override
+            public void run() {
+                if (!receiver.verifySubKeys()) {
+                    throw new IllegalStateException("Valid sub-keys have been rejected.");
+                }
+            }
+        });
+    }
+
+    /**
+     * @param count
+     * @param bits
+     * @param rnd
+     * @return random exponents of given bit length
+     */
+    private static BigInteger[] randomExponents(int count, int bits, Random rnd) {
+        BigInteger[] exponents = new BigInteger[count];
+        for (int i = 0; i < count; i++) {
+            exponents[i] = new BigInteger(bits, rnd).setBit(bits - 1);
+        }
+        return exponents;
+    }
+
+    /**
+     * Runs the task repeatedly, the first half of the runs only warms up.
+     * @param runs - number of measured runs
+     * @param task
+     * @return average time of one run in milliseconds
+     */
+    private static double measure(int runs, Runnable task) {
+        for (int i = 0; i < runs; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / runs;
+    }
+
+    private static void report(String name, String what, double baseline, String baselineName,
+                               double optimized, String optimizedName) {
+        System.out.println(String.format(Locale.ROOT, "%-16s %-32s %s: %.3f ms, %s: %.3f ms, speed-up %.2fx",
+                name, what, baselineName, baseline, optimizedName, optimized, baseline / optimized));
+    }
+}